@@ -0,0 +1,29 @@
+package benchmarks;
+
+import chess.ChessBoard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmarks {
+
+    @Benchmark
+    public ChessBoard resetBoard() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        return board;
+    }
+
+    @Benchmark
+    public Object resetBoardAndBuildBitboard() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        return board.getBitboard();
+    }
+}
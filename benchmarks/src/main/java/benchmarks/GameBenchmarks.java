@@ -0,0 +1,108 @@
+package benchmarks;
+
+import chess.Bitboard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move validation and game status queries on a middlegame position.
+ * <p>
+ * ChessGame remembers the legal moves of the position it last analyzed, so the
+ * uncached benchmarks run on {@link ColdGames}, a batch of fresh copies of the
+ * position made outside the timed part of every invocation, and query each copy
+ * once. A copy remembers nothing, the way the server sees a game it has just
+ * loaded, so they measure working the answer out from the board alone. Each
+ * invocation covers the whole batch, so the cost of timing it is shared by
+ * {@value #COPIES} operations instead of added to every one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmarks {
+
+    static final int COPIES = 256;
+
+    private ChessGame game;
+    private ChessMove move;
+
+    @State(Scope.Thread)
+    public static class ColdGames {
+
+        private final ChessGame template = Positions.middlegame();
+        private final ChessGame[] games = new ChessGame[COPIES];
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            for (int i = 0; i < games.length; i++) {
+                games[i] = new ChessGame(template);
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        game = Positions.middlegame();
+        move = Positions.move(game, "h3");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COPIES)
+    public void validMovesForEveryPiece(ColdGames cold, Blackhole blackhole) {
+        for (ChessGame game : cold.games) {
+            long pieces = game.getBoard().getBitboard().color(game.getTeamTurn());
+            while (pieces != 0) {
+                blackhole.consume(game.validMoves(Bitboard.position(Long.numberOfTrailingZeros(pieces))));
+                pieces &= pieces - 1;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COPIES)
+    public void legalMoves(ColdGames cold, Blackhole blackhole) {
+        for (ChessGame game : cold.games) {
+            blackhole.consume(game.legalMoves(game.getTeamTurn()));
+        }
+    }
+
+    @Benchmark
+    public ChessGame makeMove() throws InvalidMoveException {
+        ChessGame copy = new ChessGame(game);
+        copy.makeMove(move);
+        return copy;
+    }
+
+    @Benchmark
+    public ChessGame copyGame() {
+        return new ChessGame(game);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COPIES)
+    public void isInCheck(ColdGames cold, Blackhole blackhole) {
+        for (ChessGame game : cold.games) {
+            blackhole.consume(game.isInCheck(game.getTeamTurn()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COPIES)
+    public void isInCheckmate(ColdGames cold, Blackhole blackhole) {
+        for (ChessGame game : cold.games) {
+            blackhole.consume(game.isInCheckmate(game.getTeamTurn()));
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheckmateCached() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+}
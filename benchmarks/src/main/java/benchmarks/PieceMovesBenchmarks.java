@@ -0,0 +1,57 @@
+package benchmarks;
+
+import chess.Bitboard;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.piececalculators.PieceMovesCalculator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pseudo-legal move generation by each piece calculator, over every piece of that
+ * type either side has in a middlegame position.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PieceMovesBenchmarks {
+
+    @Param({"KING", "QUEEN", "BISHOP", "KNIGHT", "ROOK", "PAWN"})
+    public ChessPiece.PieceType type;
+
+    private ChessBoard board;
+    private PieceMovesCalculator calculator;
+    private final List<ChessPosition> positions = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        board = Positions.middlegame().getBoard();
+        calculator = ChessPiece.calculator(type);
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            long pieces = board.getBitboard().pieces(color, type);
+            while (pieces != 0) {
+                positions.add(Bitboard.position(Long.numberOfTrailingZeros(pieces)));
+                pieces &= pieces - 1;
+            }
+        }
+    }
+
+    @Benchmark
+    public void calculateMoves(Blackhole blackhole) {
+        for (ChessPosition position : positions) {
+            for (ChessMove move : calculator.calculateMoves(board, position)) {
+                blackhole.consume(move);
+            }
+        }
+    }
+}
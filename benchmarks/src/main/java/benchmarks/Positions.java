@@ -0,0 +1,35 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.PackedMove;
+
+/**
+ * Positions shared by the benchmarks, built through the public game API.
+ */
+final class Positions {
+
+    // Giuoco Pianissimo after 6... a6, a quiet middlegame with every piece type in play
+    private static final String[] MIDDLEGAME_MOVES = {
+            "e4", "e5", "Nf3", "Nc6", "Bc4", "Bc5", "c3", "Nf6", "d3", "d6", "Nbd2", "a6"
+    };
+
+    private Positions() {
+    }
+
+    static ChessGame middlegame() {
+        ChessGame game = new ChessGame();
+        for (String move : MIDDLEGAME_MOVES) {
+            game.play(game.parseSan(move));
+        }
+        return game;
+    }
+
+    /**
+     * @return the legal move written in Standard Algebraic Notation in the game's
+     * position
+     */
+    static ChessMove move(ChessGame game, String san) {
+        return PackedMove.toChessMove(game.parseSan(san));
+    }
+}
@@ -4,7 +4,7 @@ import chess.*;
 
 public class ClientMain {
     public static void main(String[] args) throws ResponseException {
-        var piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+        var piece = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
         System.out.println("♕ 240 Chess Client: " + piece);
 
         var serverUrl = "http://localhost:8080";
@@ -50,6 +50,25 @@ public class DrawBoard {
         out.print(SET_TEXT_COLOR_BLACK);
     }
 
+    /**
+     * Draws a horizontal evaluation bar, white's share on the left, with the
+     * score in pawns after it. The bar is full for one side at a ten pawn lead.
+     *
+     * @param centipawns the evaluation from white's side
+     */
+    public static void drawEvaluationBar(PrintStream out, int centipawns) {
+        int width = BOARD_SIZE_IN_SQUARES * 3 + 6;
+        int clamped = Math.max(-1000, Math.min(1000, centipawns));
+        int white = (clamped + 1000) * width / 2000;
+        out.print(SET_BG_COLOR_WHITE);
+        out.print(" ".repeat(white));
+        out.print(SET_BG_COLOR_BLACK);
+        out.print(" ".repeat(width - white));
+        out.print(RESET_BG_COLOR);
+        out.print(RESET_TEXT_COLOR);
+        out.printf(" %+.1f%n", centipawns / 100.0);
+    }
+
     private static void drawHeaders(PrintStream out, ChessGame.TeamColor color) {
         setBlack(out);
         out.print(SET_TEXT_COLOR_WHITE);
@@ -100,7 +119,7 @@ public class DrawBoard {
             else {
                 bgColor = SET_BG_COLOR_LIGHT_GREY;
             }
-            ChessPosition position = new ChessPosition(diplayRow, displayColumn);
+            ChessPosition position = ChessPosition.of(diplayRow, displayColumn);
             if (validMoves != null) {
                 String highlightColor = setHighlightColor(position, validMoves);
                 if (!highlightColor.isEmpty()) {
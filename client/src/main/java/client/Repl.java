@@ -6,6 +6,8 @@ import client.websocket.WebSocketFacade;
 import model.Game;
 import request.*;
 import result.*;
+import websocket.messages.AnalysisEndMessage;
+import websocket.messages.AnalysisMessage;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationMessage;
@@ -21,6 +23,7 @@ public class Repl implements ServerMessageObserver {
     private List<Integer> gameIDs = new ArrayList<>();
     private WebSocketFacade webSocketFacade;
     private ChessGame.TeamColor boardColor = ChessGame.TeamColor.WHITE;
+    private boolean observing = false;
     private Integer gameID;
     private ChessGame chessGame = null;
 
@@ -78,6 +81,8 @@ public class Repl implements ServerMessageObserver {
                 case "res", "resign" -> resign();
                 case "r", "redraw" -> redraw();
                 case "hl", "highlight" -> highlight(params);
+                case "a", "analyze" -> analyze(params);
+                case "stop" -> stopAnalysis();
                 default -> help();
             };
         } catch (ResponseException ex) {
@@ -96,7 +101,7 @@ public class Repl implements ServerMessageObserver {
         else if (state == State.SIGNEDIN){
             stringBuilder.append("create <NAME> - a game\n");
             stringBuilder.append("list - games\n");
-            stringBuilder.append("join <ID> [WHITE|BLACK|OBSERVE] - a game\n");
+            stringBuilder.append("join <ID> [WHITE|BLACK|OBSERVE] [COMPUTER] - a game, optionally against the computer\n");
             stringBuilder.append("logout - when you are done\n");
             stringBuilder.append("quit - playing chess\n");
             stringBuilder.append("help - with possible commands\n");
@@ -108,6 +113,8 @@ public class Repl implements ServerMessageObserver {
             stringBuilder.append("Redraw Chess Board: \"r\", \"redraw\"\n");
             stringBuilder.append("Resign from game: \"res\", \"resign\"\n");
             stringBuilder.append("Leave game: \"leave\"\n");
+            stringBuilder.append("Analyze the position (observers, or once the game is over): \"a\", \"analyze\" <optional number of lines>\n");
+            stringBuilder.append("Stop analyzing: \"stop\"\n");
         }
         return stringBuilder.toString();
     }
@@ -193,7 +200,9 @@ public class Repl implements ServerMessageObserver {
     }
 
     private String join(String[] params) throws ResponseException {
-        if (params.length == 2 &&
+        boolean vsComputer = params.length == 3 && "COMPUTER".equalsIgnoreCase(params[2])
+                && !"OBSERVE".equalsIgnoreCase(params[1]);
+        if ((params.length == 2 || vsComputer) &&
                 ( "WHITE".equalsIgnoreCase(params[1]) ||
                 "BLACK".equalsIgnoreCase(params[1]) ||
                 "OBSERVE".equalsIgnoreCase(params[1]))) {
@@ -213,10 +222,11 @@ public class Repl implements ServerMessageObserver {
                     boardColor = ChessGame.TeamColor.BLACK;
                 }
                 if (teamColor != null) {
-                    JoinRequest request = new JoinRequest(teamColor, gameID, this.authToken);
+                    JoinRequest request = new JoinRequest(teamColor, gameID, this.authToken, vsComputer);
                     JoinResult result = server.join(request);
                 }
                 webSocketFacade.connect(authToken, gameID);
+                this.observing = teamColor == null;
                 this.state = State.INGAME;
                 this.gameID = gameID;
                 return "Successfully Joined Game" + "\n";
@@ -225,7 +235,7 @@ public class Repl implements ServerMessageObserver {
             }
         }
         else {
-            return "Please follow format: JOIN <GAMEID> <WHITE|BLACK|OBSERVE>";
+            return "Please follow format: JOIN <GAMEID> <WHITE|BLACK|OBSERVE> [COMPUTER]";
         }
     }
 
@@ -291,6 +301,47 @@ public class Repl implements ServerMessageObserver {
         }
     }
 
+    public String analyze(String[] params) throws ResponseException {
+        int lines = 3;
+        if (params.length == 1) {
+            try {
+                lines = Integer.parseInt(params[0]);
+            } catch (NumberFormatException e) {
+                return "Error: Please enter an optional number of lines (e.g. analyze 3)";
+            }
+        } else if (params.length > 1) {
+            return "Error: Please enter an optional number of lines (e.g. analyze 3)";
+        }
+        webSocketFacade.analyze(authToken, gameID, lines);
+        return "";
+    }
+
+    public String stopAnalysis() throws ResponseException {
+        webSocketFacade.stopAnalysis(authToken, gameID);
+        return "";
+    }
+
+    private static String lineText(AnalysisMessage.Line line) {
+        StringBuilder text = new StringBuilder();
+        if (line.getMate() != null) {
+            text.append(String.format("%6s", "#" + line.getMate()));
+        } else {
+            text.append(String.format("%+6.2f", line.getScore() / 100.0));
+        }
+        for (ChessMove move : line.getMoves()) {
+            ChessPosition start = move.getStartPosition();
+            ChessPosition end = move.getEndPosition();
+            text.append(' ')
+                    .append((char) ('a' + start.getColumn() - 1)).append(start.getRow())
+                    .append((char) ('a' + end.getColumn() - 1)).append(end.getRow());
+            if (move.getPromotionPiece() != null) {
+                text.append(move.getPromotionPiece() == ChessPiece.PieceType.KNIGHT ? 'n'
+                        : Character.toLowerCase(move.getPromotionPiece().toString().charAt(0)));
+            }
+        }
+        return text.toString();
+    }
+
     public String highlight(String[] params) {
         if (params.length != 1) {
             return "Error: Follow format <position> (e.g. hl e5)";
@@ -328,7 +379,7 @@ public class Repl implements ServerMessageObserver {
         if (col == 0 || row < 1 || row > 8) {
             throw new RuntimeException("Error: Invalid coordinates (must be a-h and 1-8)");
         }
-        ChessPosition chessPosition = new ChessPosition(row, col);
+        ChessPosition chessPosition = ChessPosition.of(row, col);
         return chessPosition;
     }
 
@@ -352,6 +403,9 @@ public class Repl implements ServerMessageObserver {
                 System.out.println();
                 DrawBoard.drawBoard(System.out, board, boardColor);
                 System.out.println();
+                if (observing && loadGameMessage.getEvaluation() != null) {
+                    DrawBoard.drawEvaluationBar(System.out, loadGameMessage.getEvaluation());
+                }
                 break;
             case NOTIFICATION:
                 NotificationMessage notificationMessage = (NotificationMessage) message;
@@ -359,6 +413,18 @@ public class Repl implements ServerMessageObserver {
                 System.out.println(notification);
                 printState();
                 break;
+            case ANALYSIS:
+                AnalysisMessage analysisMessage = (AnalysisMessage) message;
+                System.out.println("Depth " + analysisMessage.getDepth() + ":");
+                for (AnalysisMessage.Line line : analysisMessage.getLines()) {
+                    System.out.println(lineText(line));
+                }
+                break;
+            case ANALYSIS_END:
+                AnalysisEndMessage analysisEndMessage = (AnalysisEndMessage) message;
+                System.out.println(analysisEndMessage.isCancelled() ? "Analysis stopped." : "Analysis finished.");
+                printState();
+                break;
             case ERROR:
                 ErrorMessage errorMessage = (ErrorMessage) message;
                 String error = errorMessage.getErrorMessage();
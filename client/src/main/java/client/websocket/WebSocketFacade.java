@@ -4,8 +4,11 @@ import chess.ChessMove;
 import com.google.gson.Gson;
 import client.ResponseException;
 import jakarta.websocket.*;
+import websocket.commands.AnalyzeCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
+import websocket.messages.AnalysisEndMessage;
+import websocket.messages.AnalysisMessage;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationMessage;
@@ -42,6 +45,8 @@ public class WebSocketFacade extends Endpoint {
                         case LOAD_GAME -> serverMessage = gson.fromJson(message, LoadGameMessage.class);
                         case NOTIFICATION -> serverMessage = gson.fromJson(message, NotificationMessage.class);
                         case ERROR -> serverMessage = gson.fromJson(message, ErrorMessage.class);
+                        case ANALYSIS -> serverMessage = gson.fromJson(message, AnalysisMessage.class);
+                        case ANALYSIS_END -> serverMessage = gson.fromJson(message, AnalysisEndMessage.class);
                     }
 
                     if (serverMessage != null) {
@@ -94,4 +99,22 @@ public class WebSocketFacade extends Endpoint {
             throw new ResponseException(500, e.getMessage());
         }
     }
+
+    public void analyze(String authToken, Integer gameID, int lines) throws ResponseException {
+        try {
+            AnalyzeCommand analyzeCommand = new AnalyzeCommand(authToken, gameID, lines);
+            this.session.getBasicRemote().sendText(new Gson().toJson(analyzeCommand));
+        } catch (IOException e) {
+            throw new ResponseException(500, e.getMessage());
+        }
+    }
+
+    public void stopAnalysis(String authToken, Integer gameID) throws ResponseException {
+        try {
+            UserGameCommand userGameCommand = new UserGameCommand(UserGameCommand.CommandType.STOP_ANALYSIS, authToken, gameID);
+            this.session.getBasicRemote().sendText(new Gson().toJson(userGameCommand));
+        } catch (IOException e) {
+            throw new ResponseException(500, e.getMessage());
+        }
+    }
 }
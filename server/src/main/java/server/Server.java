@@ -14,6 +14,7 @@ import javax.xml.crypto.Data;
 public class Server {
 
     private final Javalin javalin;
+    private final WebSocketHandler webSocketHandler = new WebSocketHandler();
 
     public Server() {
 
@@ -30,7 +31,7 @@ public class Server {
         GameDAO gameDAO = new MySQLGameDAO();
 
         UserService user = new UserService(userDAO, authDAO);
-        GameService game = new GameService(userDAO, authDAO, gameDAO);
+        GameService game = new GameService(userDAO, authDAO, gameDAO, webSocketHandler::requestComputerMove);
         ClearService clear = new ClearService(userDAO, authDAO, gameDAO);
 
         RegisterHandler registerHandler = new RegisterHandler(user);
@@ -51,7 +52,6 @@ public class Server {
     }
 
     public int run(int desiredPort) {
-        WebSocketHandler webSocketHandler = new WebSocketHandler();
         javalin.ws("/ws", ws -> {ws.onConnect(webSocketHandler);
         ws.onMessage(webSocketHandler);
         ws.onClose(webSocketHandler);});
@@ -0,0 +1,188 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Tablebases;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import com.google.gson.Gson;
+import org.eclipse.jetty.websocket.api.Session;
+import websocket.messages.AnalysisEndMessage;
+import websocket.messages.AnalysisMessage;
+import websocket.messages.ServerMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs multi-PV analysis of game positions for connected clients, streaming the
+ * best lines back after every ply of deepening.
+ * <p>
+ * Analyses run on a fixed pool of worker threads with a bounded queue, each
+ * searching on one thread, so however many are asked for they cannot take more
+ * cores than the pool has or hold up the threads that handle moves; once the
+ * queue is full, new requests are turned away. Each worker keeps a
+ * transposition table of its own, so analyses of different games running at
+ * once do not age out each other's entries. A connection has at most one
+ * analysis, and a new request replaces the old one. Every analysis ends with an
+ * {@link AnalysisEndMessage}, whether it ran out of time, was replaced, or was
+ * stopped because its game's position changed.
+ */
+public class AnalysisService {
+
+    public static final int MAX_LINES = 5;
+
+    private final ThreadPoolExecutor workers;
+    private final ThreadLocal<TranspositionTable> tables;
+    private final Tablebases tablebases;
+    private final long millis;
+    private final Map<Session, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * @param workers    how many analyses may run at once
+     * @param queue      how many may wait for a worker
+     * @param megabytes  how much memory each worker's table may use
+     * @param tablebases endgame tables to score positions from, or null
+     * @param millis     how long each analysis may run
+     */
+    public AnalysisService(int workers, int queue, int megabytes, Tablebases tablebases, long millis) {
+        AtomicInteger count = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue),
+                task -> Thread.ofPlatform().daemon().name("analysis-" + count.incrementAndGet()).unstarted(task));
+        this.tables = ThreadLocal.withInitial(() -> new TranspositionTable(megabytes));
+        this.tablebases = tablebases;
+        this.millis = millis;
+    }
+
+    /**
+     * Starts analyzing a position for a connection, stopping any analysis it
+     * already had
+     *
+     * @param game  the position to analyze; it is copied, not changed
+     * @param lines how many of the best moves to send lines for, capped at
+     *              {@link #MAX_LINES}
+     * @return false if the queue is full and the analysis was not started
+     */
+    public boolean start(Session session, Integer gameID, ChessGame game, int lines) {
+        stop(session);
+        Job job = new Job(session, gameID, game, Math.max(1, Math.min(MAX_LINES, lines)));
+        jobs.put(session, job);
+        try {
+            workers.execute(job);
+            return true;
+        } catch (RejectedExecutionException e) {
+            jobs.remove(session, job);
+            return false;
+        }
+    }
+
+    /**
+     * Stops the analysis of a connection, if it has one
+     */
+    public void stop(Session session) {
+        Job job = jobs.remove(session);
+        if (job != null) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * Stops every analysis of a game, since the position they were asked for is
+     * gone
+     */
+    public void stopGame(Integer gameID) {
+        for (Job job : jobs.values()) {
+            if (job.gameID.equals(gameID) && jobs.remove(job.session, job)) {
+                job.cancel();
+            }
+        }
+    }
+
+    private static void send(Session session, ServerMessage message) {
+        String json = new Gson().toJson(message);
+        if (!session.isOpen()) {
+            return;
+        }
+        try {
+            Connection.send(session, json);
+        } catch (IOException e) {
+            System.out.println("Unable to send analysis: " + e.getMessage());
+        }
+    }
+
+    private final class Job implements Runnable {
+
+        private final Session session;
+        private final Integer gameID;
+        private final ChessGame game;
+        private final int lines;
+        private volatile Search search;
+        private volatile boolean cancelled;
+
+        private Job(Session session, Integer gameID, ChessGame game, int lines) {
+            this.session = session;
+            this.gameID = gameID;
+            this.game = new ChessGame(game);
+            this.lines = lines;
+        }
+
+        @Override
+        public void run() {
+            if (!cancelled) {
+                Search search = new Search(game, tables.get());
+                search.setTablebases(tablebases);
+                this.search = search;
+                SearchLimits limits = SearchLimits.time(millis).withLines(lines);
+                search.analyze(limits, results -> {
+                    if (cancelled) {
+                        // Catches a stop that came before the search started listening for one
+                        search.stop();
+                    } else {
+                        send(session, message(results));
+                    }
+                });
+            }
+            jobs.remove(session, this);
+            send(session, new AnalysisEndMessage(gameID, cancelled));
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Search search = this.search;
+            if (search != null) {
+                search.stop();
+            }
+            if (workers.remove(this)) {
+                send(session, new AnalysisEndMessage(gameID, true));
+            }
+        }
+
+        private AnalysisMessage message(List<SearchResult> results) {
+            // Search scores are for the side to move; clients get them from white's side
+            int sign = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? 1 : -1;
+            List<AnalysisMessage.Line> lines = new ArrayList<>(results.size());
+            for (SearchResult result : results) {
+                Integer mate = null;
+                if (result.isMate()) {
+                    int moves = (Search.MATE - Math.abs(result.score()) + 1) / 2;
+                    mate = result.score() > 0 ? sign * moves : -sign * moves;
+                }
+                List<ChessMove> moves = result.principalVariation();
+                lines.add(new AnalysisMessage.Line(sign * result.score(), mate, moves));
+            }
+            SearchResult best = results.get(0);
+            return new AnalysisMessage(gameID, best.depth(), best.nodes(), lines);
+        }
+    }
+}
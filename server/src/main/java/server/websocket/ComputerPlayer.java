@@ -0,0 +1,148 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.PackedMove;
+import chess.Tablebases;
+import chess.engine.OpeningBook;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.TranspositionTable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Chooses and schedules the computer's moves.
+ * <p>
+ * Moves are played on a fixed pool of worker threads, never on the threads that
+ * handle websocket messages. A game has at most one move queued or running at a
+ * time, so requests that race each other, such as a join and a move, cannot play
+ * the computer's move twice; a request that comes while the game's move is
+ * running has it run once more after, to catch whatever changed.
+ * <p>
+ * Each game searches with a transposition table of its own, kept between its
+ * moves so the next search starts from what the last one learned. A table
+ * shared by every game would have each search age out the entries of the
+ * others, since starting a search makes everything stored before it older. Only
+ * the games moved in most recently keep their tables.
+ * <p>
+ * Searches with more than one thread take their helpers from one pool shared by
+ * every game, started once, so however many games the computer moves in at once
+ * it searches on at most {@code workers + threads - 1} threads. A helper still
+ * waiting for a pool thread when its move is found is skipped.
+ */
+final class ComputerPlayer {
+
+    private final ThreadPoolExecutor workers;
+    private final ThreadPoolExecutor helpers;
+    private final Map<Integer, TranspositionTable> tables;
+    private final int tableMegabytes;
+    private final OpeningBook book;
+    private final Tablebases tablebases;
+    private final long millis;
+    private final int threads;
+    private final Random random = new Random();
+    /**
+     * The games with a move queued or running, each mapped to whether it was
+     * requested again since its move started
+     */
+    private final Map<Integer, Boolean> requests = new ConcurrentHashMap<>();
+
+    /**
+     * @param workers        how many games the computer may move in at once
+     * @param tables         how many games keep their transposition tables between
+     *                       moves
+     * @param tableMegabytes how much memory each game's table may use
+     * @param book           the opening book to play from, or null
+     * @param tablebases     endgame tables to score positions from, or null
+     * @param millis         how long to search for each move
+     * @param threads        how many threads to search each move with, counting
+     *                       the worker's own
+     */
+    ComputerPlayer(int workers, int tables, int tableMegabytes, OpeningBook book, Tablebases tablebases,
+                   long millis, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        // The queue holds at most one move for each game
+        this.workers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                task -> Thread.ofPlatform().daemon().name("computer-" + count.incrementAndGet()).unstarted(task));
+        AtomicInteger helperCount = new AtomicInteger();
+        this.helpers = threads > 1 ? new ThreadPoolExecutor(threads - 1, threads - 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                task -> Thread.ofPlatform().daemon().name("search-helper-" + helperCount.incrementAndGet())
+                        .unstarted(task)) : null;
+        this.tables = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, TranspositionTable> eldest) {
+                return size() > tables;
+            }
+        };
+        this.tableMegabytes = tableMegabytes;
+        this.book = book;
+        this.tablebases = tablebases;
+        this.millis = millis;
+        this.threads = threads;
+    }
+
+    /**
+     * Has a worker run {@code play} for a game, unless it is already queued or
+     * running for it
+     *
+     * @param play loads the game and plays the computer's move if it is its turn
+     */
+    void request(int gameID, IntConsumer play) {
+        if (requests.put(gameID, Boolean.TRUE) != null) {
+            return;
+        }
+        workers.execute(() -> {
+            do {
+                requests.put(gameID, Boolean.FALSE);
+                try {
+                    play.accept(gameID);
+                } catch (RuntimeException e) {
+                    System.out.println("Computer move failed in game " + gameID + ": " + e.getMessage());
+                }
+            } while (!requests.remove(gameID, Boolean.FALSE));
+        });
+    }
+
+    /**
+     * @return the move to play from the book, or else from a search, or null if
+     * there is none
+     */
+    ChessMove chooseMove(int gameID, ChessGame game) {
+        if (book != null) {
+            int move = book.pickMove(game, random);
+            if (move != PackedMove.NONE) {
+                return PackedMove.toChessMove(move);
+            }
+        }
+        Search search = new Search(game, table(gameID));
+        search.setTablebases(tablebases);
+        search.setHelperExecutor(helpers);
+        return search.search(SearchLimits.time(millis).withThreads(threads)).bestMove();
+    }
+
+    /**
+     * Lets go of a game's table once the game is over
+     */
+    void forget(int gameID) {
+        synchronized (tables) {
+            tables.remove(gameID);
+        }
+    }
+
+    private TranspositionTable table(int gameID) {
+        synchronized (tables) {
+            return tables.computeIfAbsent(gameID, id -> new TranspositionTable(tableMegabytes));
+        }
+    }
+}
@@ -14,6 +14,17 @@ public class Connection {
     }
 
     public void send(String message) throws IOException {
-        session.getRemote().sendString(message);
+        send(session, message);
+    }
+
+    /**
+     * Sends a message on a session. Every message to a client goes through here,
+     * since analysis workers and computer moves send on the same sessions from
+     * their own threads and the remote endpoint allows only one send at a time.
+     */
+    public static void send(Session session, String message) throws IOException {
+        synchronized (session) {
+            session.getRemote().sendString(message);
+        }
     }
 }
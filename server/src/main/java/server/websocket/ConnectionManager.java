@@ -1,42 +1,36 @@
 package server.websocket;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.google.gson.Gson;
 import org.eclipse.jetty.websocket.api.Session;
 import websocket.messages.ServerMessage;
 
 public class ConnectionManager {
-    public final ConcurrentHashMap<Integer, ArrayList<Connection>> games = new ConcurrentHashMap<>();
+    // Computer moves broadcast from their own threads while connections come and go
+    public final ConcurrentHashMap<Integer, CopyOnWriteArrayList<Connection>> games = new ConcurrentHashMap<>();
 
     public void add(Session session, Integer gameID, String username) {
-        ArrayList<Connection> connections = games.get(gameID);
-        if (connections == null) {
-            games.put(gameID, new ArrayList<>());
-            connections = games.get(gameID);
-        }
+        CopyOnWriteArrayList<Connection> connections = games.computeIfAbsent(gameID, id -> new CopyOnWriteArrayList<>());
         Connection connection = new Connection(username, session);
         connections.add(connection);
 
     }
 
     public void remove(Session session, Integer gameID) {
-        ArrayList<Connection> connections = games.get(gameID);
+        CopyOnWriteArrayList<Connection> connections = games.get(gameID);
         if (connections != null) {
-            var iterator = connections.iterator();
-            while (iterator.hasNext()) {
-                Connection connection = iterator.next();
-                if (connection.session.equals(session)) {
-                    iterator.remove();
-                }
-            }
+            connections.removeIf(connection -> connection.session.equals(session));
         }
     }
 
     public void broadcast(Integer gameID, String excludeUserName, ServerMessage message) throws IOException {
-        ArrayList<Connection> connections = games.get(gameID);
+        CopyOnWriteArrayList<Connection> connections = games.get(gameID);
+        if (connections == null) {
+            return;
+        }
         for (Connection connection : connections) {
             if (connection.session.isOpen() &&
                     (excludeUserName == null || !connection.username.equals(excludeUserName))) {
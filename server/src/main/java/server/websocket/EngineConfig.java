@@ -0,0 +1,106 @@
+package server.websocket;
+
+import java.util.Properties;
+
+/**
+ * Settings for the computer player, read from engine.properties. Any setting
+ * missing from the file, or the file itself, falls back to a default.
+ */
+final class EngineConfig {
+
+    private static final Properties PROPERTIES = new Properties();
+
+    static {
+        try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("engine.properties")) {
+            if (propStream != null) {
+                PROPERTIES.load(propStream);
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("unable to process engine.properties", ex);
+        }
+    }
+
+    private EngineConfig() {
+    }
+
+    /**
+     * @return how much memory each game's transposition table may use
+     */
+    static int hashMegabytes() {
+        return intProperty("engine.hashMegabytes", 16);
+    }
+
+    /**
+     * @return how many games keep their transposition tables between the
+     * computer's moves
+     */
+    static int hashGames() {
+        return Math.max(1, intProperty("engine.hashGames", 8));
+    }
+
+    /**
+     * @return how many threads the computer player searches each move with, by
+     * default one per core; the helper threads beyond the first are shared by
+     * every game
+     */
+    static int threads() {
+        return Math.max(1, intProperty("engine.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @return how many games the computer may search a move in at once
+     */
+    static int computerWorkers() {
+        return Math.max(1, intProperty("engine.computerWorkers", 2));
+    }
+
+    /**
+     * @return the path of the opening book file, or null to play without one
+     */
+    static String bookPath() {
+        String value = PROPERTIES.getProperty("engine.book");
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * @return the directory of endgame tables written by chess.Tablebases, or null
+     * to play without them
+     */
+    static String tablebasePath() {
+        String value = PROPERTIES.getProperty("engine.tablebases");
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * @return how many analyses may run at once, by default half the cores
+     */
+    static int analysisWorkers() {
+        return Math.max(1, intProperty("engine.analysisWorkers", Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * @return how many analyses may wait for a worker before more are turned away
+     */
+    static int analysisQueue() {
+        return Math.max(1, intProperty("engine.analysisQueue", 16));
+    }
+
+    /**
+     * @return how long one analysis may run, in milliseconds
+     */
+    static long analysisMillis() {
+        return intProperty("engine.analysisMillis", 10_000);
+    }
+
+    /**
+     * @return how much memory each analysis worker's transposition table may use
+     */
+    static int analysisHashMegabytes() {
+        return intProperty("engine.analysisHashMegabytes", 16);
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        String value = PROPERTIES.getProperty(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
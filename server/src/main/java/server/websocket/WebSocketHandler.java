@@ -4,6 +4,11 @@ import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPosition;
 import chess.InvalidMoveException;
+import chess.TablebaseResult;
+import chess.Tablebases;
+import chess.engine.Evaluator;
+import chess.engine.OpeningBook;
+import chess.engine.PawnCache;
 import com.google.gson.Gson;
 import dataaccess.*;
 import io.javalin.websocket.*;
@@ -11,6 +16,7 @@ import model.AuthToken;
 import model.Game;
 import model.User;
 import org.eclipse.jetty.websocket.api.Session;
+import websocket.commands.AnalyzeCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ErrorMessage;
@@ -18,10 +24,27 @@ import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationMessage;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsCloseHandler {
+    private static final long COMPUTER_MOVE_MILLIS = 1000;
+    private static final int PAWN_CACHE_ENTRIES = 1 << 12;
+    private static final ThreadLocal<PawnCache> PAWN_CACHE =
+            ThreadLocal.withInitial(() -> new PawnCache(PAWN_CACHE_ENTRIES));
+
     private final ConnectionManager connectionManager = new ConnectionManager();
+    private final Map<Integer, Object> gameLocks = new ConcurrentHashMap<>();
+    private final Tablebases tablebases = loadTablebases();
+    private final ComputerPlayer computer = new ComputerPlayer(EngineConfig.computerWorkers(),
+            EngineConfig.hashGames(), EngineConfig.hashMegabytes(), openBook(), tablebases, COMPUTER_MOVE_MILLIS,
+            EngineConfig.threads());
+    private final AnalysisService analysis = new AnalysisService(EngineConfig.analysisWorkers(),
+            EngineConfig.analysisQueue(), EngineConfig.analysisHashMegabytes(),
+            tablebases, EngineConfig.analysisMillis());
     private MySQLAuthDAO authDAO = new MySQLAuthDAO();
     private MySQLGameDAO gameDAO = new MySQLGameDAO();
     private MySQLUserDAO userDAO = new MySQLUserDAO();
@@ -59,6 +82,16 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
             case RESIGN:
                 resign(command.getAuthToken(), command.getGameID(), ctx.session);
                 break;
+
+            case ANALYZE:
+                AnalyzeCommand analyzeCommand = new Gson().fromJson(message, AnalyzeCommand.class);
+                analyze(analyzeCommand.getAuthToken(), analyzeCommand.getGameID(), analyzeCommand.getLines(),
+                        ctx.session);
+                break;
+
+            case STOP_ANALYSIS:
+                analysis.stop(ctx.session);
+                break;
         }
     }
 
@@ -76,10 +109,13 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
             }
 
             connectionManager.add(session, gameID, username);
+            // Read it again now that moves are broadcast here, so one the computer
+            // saved meanwhile is not missed
+            game = gameDAO.getGame(gameID);
 
-            LoadGameMessage loadGameMessage = new LoadGameMessage(game.game());
+            LoadGameMessage loadGameMessage = loadGame(game.game());
             String jsonMessage = new Gson().toJson(loadGameMessage);
-            session.getRemote().sendString(jsonMessage);
+            Connection.send(session, jsonMessage);
 
             String message;
             if (username.equals(game.whiteUsername())) {
@@ -92,12 +128,11 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
             NotificationMessage notificationMessage = new NotificationMessage(message);
             connectionManager.broadcast(gameID, username, notificationMessage);
 
-
         } catch (DataAccessException e) {
             try {
                 ErrorMessage errorMessage = new ErrorMessage("Error: " + e.getMessage());
                 String jsonErrorMessage = new Gson().toJson(errorMessage);
-                session.getRemote().sendString(jsonErrorMessage);
+                Connection.send(session, jsonErrorMessage);
             } catch (IOException ex) {
                 throw new RuntimeException(ex);
             }
@@ -114,99 +149,241 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
             }
             String username = authToken.username();
 
-            Game game = gameDAO.getGame(gameID);
-            if (game == null) {
-                throw new DataAccessException("Game does not exist.");
-            }
-            ChessGame chessGame = game.game();
-            ChessGame.TeamColor turnColor = chessGame.getTeamTurn();
-            ChessGame.TeamColor userColor = null;
-            if (username.equals(game.blackUsername())) {
-                userColor = ChessGame.TeamColor.BLACK;
-            } else if (username.equals(game.whiteUsername())) {
-                userColor = ChessGame.TeamColor.WHITE;
-            }
-            if (userColor == null) {
-                throw new DataAccessException("Error: You are an observer.");
-            } else if (userColor != turnColor) {
-                throw new DataAccessException("Error: It's not your turn.");
+            synchronized (gameLock(gameID)) {
+                Game game = gameDAO.getGame(gameID);
+                if (game == null) {
+                    throw new DataAccessException("Game does not exist.");
+                }
+                ChessGame chessGame = game.game();
+                ChessGame.TeamColor turnColor = chessGame.getTeamTurn();
+                ChessGame.TeamColor userColor = null;
+                if (username.equals(game.blackUsername())) {
+                    userColor = ChessGame.TeamColor.BLACK;
+                } else if (username.equals(game.whiteUsername())) {
+                    userColor = ChessGame.TeamColor.WHITE;
+                }
+                if (userColor == null) {
+                    throw new DataAccessException("Error: You are an observer.");
+                } else if (userColor != turnColor) {
+                    throw new DataAccessException("Error: It's not your turn.");
+                }
+                if (chessGame.isInCheckmate(turnColor) || chessGame.isInStalemate(turnColor)) {
+                    throw new DataAccessException("Error: Game over.");
+                }
+                if (chessGame.isGameOver()) {
+                    throw new DataAccessException("Error: Game over.");
+                }
+                ChessPosition startPosition = move.getStartPosition();
+                Collection<ChessMove> validMoves = chessGame.validMoves(startPosition);
+                if (!validMoves.contains(move)) {
+                    throw new DataAccessException("Error: That's not a valid move.");
+                }
+                chessGame.makeMove(move);
+                String endMessage = finishMove(chessGame);
+
+                gameDAO.updateGame(game);
+                analysis.stopGame(gameID);
+                if (chessGame.isGameOver()) {
+                    computer.forget(gameID);
+                }
+
+                LoadGameMessage loadGameMessage = loadGame(game.game());
+                connectionManager.broadcast(gameID, null, loadGameMessage);
+
+                String message = positionString(move, username);
+                NotificationMessage notificationMessage = new NotificationMessage(message);
+                connectionManager.broadcast(gameID, username, notificationMessage);
+
+                if (endMessage != null) {
+                    connectionManager.broadcast(gameID, null, new NotificationMessage(endMessage));
+                }
+
+                if (Game.COMPUTER.equals(game.whiteUsername()) || Game.COMPUTER.equals(game.blackUsername())) {
+                    requestComputerMove(gameID);
+                }
             }
-            if (chessGame.isInCheckmate(turnColor) || chessGame.isInStalemate(turnColor)) {
-                throw new DataAccessException("Error: Game over.");
-            }
-            if (chessGame.isGameOver()) {
-                throw new DataAccessException("Error: Game over.");
-            }
-            ChessPosition startPosition = move.getStartPosition();
-            Collection<ChessMove> validMoves = chessGame.validMoves(startPosition);
-            if (!validMoves.contains(move)) {
-                throw new DataAccessException("Error: That's not a valid move.");
+
+        } catch (DataAccessException | InvalidMoveException e) {
+            try {
+                ErrorMessage errorMessage = new ErrorMessage("Error: " + e.getMessage());
+                Connection.send(session, new Gson().toJson(errorMessage));
+            } catch (IOException i) {
+                throw new RuntimeException(i);
             }
-            chessGame.makeMove(move);
-            boolean over = false;
-            String endMessage = null;
-            ChessGame.TeamColor opponentColor = null;
-            if (userColor == ChessGame.TeamColor.WHITE) {
-                opponentColor = ChessGame.TeamColor.BLACK;
-            } else if (userColor == ChessGame.TeamColor.BLACK) {
-                opponentColor = ChessGame.TeamColor.WHITE;
+        }
+    }
+
+    /**
+     * Has the computer play its move in a game if it holds the seat whose turn it
+     * is, on the computer's own threads. Call whenever a move or a change of seats
+     * may have made it the computer's turn.
+     */
+    public void requestComputerMove(int gameID) {
+        computer.request(gameID, this::playComputerMove);
+    }
+
+    /**
+     * Plays the computer's move if it holds the seat whose turn it is, then saves
+     * and broadcasts the game as for a player's move. The search runs without the
+     * game's lock, so the move is only played if the game read again under the
+     * lock is still in the position searched with the computer to move.
+     */
+    private void playComputerMove(int gameID) {
+        try {
+            Game searched = gameDAO.getGame(gameID);
+            if (!isComputersTurn(searched)) {
+                return;
             }
-            if (chessGame.isInCheckmate(opponentColor)) {
-                over = true;
-                endMessage = opponentColor + " is in checkmate. Game over.";
-            } else if (chessGame.isInStalemate(opponentColor)) {
-                over = true;
-                endMessage = "Stalemate. Game over.";
-            } else if (chessGame.isInCheck(opponentColor)) {
-                endMessage = opponentColor + " is in check.";
+            ChessMove move = computer.chooseMove(gameID, searched.game());
+            if (move == null) {
+                return;
             }
-            if (over) {
-                chessGame.setGameOver(true);
+            synchronized (gameLock(gameID)) {
+                // A move, resign or leave saved during the search wins over the
+                // search's result, which is dropped
+                Game game = gameDAO.getGame(gameID);
+                if (!isComputersTurn(game) || game.game().positionKey() != searched.game().positionKey()) {
+                    return;
+                }
+                ChessGame chessGame = game.game();
+                chessGame.makeMove(move);
+                String endMessage = finishMove(chessGame);
+                gameDAO.updateGame(game);
+                if (chessGame.isGameOver()) {
+                    computer.forget(gameID);
+                }
+
+                analysis.stopGame(gameID);
+                connectionManager.broadcast(gameID, null, loadGame(chessGame));
+                connectionManager.broadcast(gameID, null,
+                        new NotificationMessage(positionString(move, Game.COMPUTER)));
+                if (endMessage != null) {
+                    connectionManager.broadcast(gameID, null, new NotificationMessage(endMessage));
+                }
             }
+        } catch (DataAccessException | InvalidMoveException | IOException e) {
+            System.out.println("Unable to play the computer's move: " + e.getMessage());
+        }
+    }
 
-            gameDAO.updateGame(game);
+    private static boolean isComputersTurn(Game game) {
+        if (game == null || game.game().isGameOver()) {
+            return false;
+        }
+        String toMove = game.game().getTeamTurn() == ChessGame.TeamColor.WHITE
+                ? game.whiteUsername() : game.blackUsername();
+        return Game.COMPUTER.equals(toMove);
+    }
 
-            LoadGameMessage loadGameMessage = new LoadGameMessage(game.game());
-            connectionManager.broadcast(gameID, null, loadGameMessage);
+    /**
+     * @return the lock held while a game is read, changed and saved, so changes
+     * made on different threads cannot save over each other
+     */
+    private Object gameLock(Integer gameID) {
+        return gameLocks.computeIfAbsent(Objects.requireNonNullElse(gameID, 0), id -> new Object());
+    }
 
-            String message = positionString(move, username);
-            NotificationMessage notificationMessage = new NotificationMessage(message);
-            connectionManager.broadcast(gameID, username, notificationMessage);
+    private static OpeningBook openBook() {
+        String path = EngineConfig.bookPath();
+        if (path == null) {
+            return null;
+        }
+        try {
+            return OpeningBook.open(Path.of(path));
+        } catch (IOException e) {
+            System.out.println("Playing without an opening book: " + e.getMessage());
+            return null;
+        }
+    }
 
-            if (endMessage != null) {
-                connectionManager.broadcast(gameID, null, new NotificationMessage(endMessage));
-            }
+    private static Tablebases loadTablebases() {
+        String path = EngineConfig.tablebasePath();
+        if (path == null) {
+            return null;
+        }
+        try {
+            return Tablebases.load(Path.of(path));
+        } catch (IOException e) {
+            System.out.println("Playing without endgame tables: " + e.getMessage());
+            return null;
+        }
+    }
 
-        } catch (DataAccessException | InvalidMoveException e) {
-            try {
-                ErrorMessage errorMessage = new ErrorMessage("Error: " + e.getMessage());
-                session.getRemote().sendString(new Gson().toJson(errorMessage));
-            } catch (IOException i) {
-                throw new RuntimeException(i);
+    /**
+     * Builds the message carrying the game to clients, with the position's static
+     * evaluation for observers' evaluation bars. The evaluation reads its material
+     * and placement terms off the board, where moves keep them up to date, and
+     * most moves leave the pawns as they were in this thread's pawn cache, so
+     * sending it with every move costs little.
+     */
+    private static LoadGameMessage loadGame(ChessGame chessGame) {
+        return new LoadGameMessage(chessGame, Evaluator.whiteScore(chessGame, PAWN_CACHE.get()));
+    }
+
+    /**
+     * Checks whether the move just made ended the game, marking it over if so
+     *
+     * @return the message announcing the end of the game or a check, and any mate
+     * the endgame tables see coming, or null
+     */
+    private String finishMove(ChessGame chessGame) {
+        boolean over = false;
+        String endMessage = null;
+        ChessGame.TeamColor opponentColor = chessGame.getTeamTurn();
+        if (chessGame.isInCheckmate(opponentColor)) {
+            over = true;
+            endMessage = opponentColor + " is in checkmate. Game over.";
+        } else if (chessGame.isInStalemate(opponentColor)) {
+            over = true;
+            endMessage = "Stalemate. Game over.";
+        } else if (chessGame.isThreefoldRepetition()) {
+            over = true;
+            endMessage = "Draw by threefold repetition. Game over.";
+        } else if (chessGame.isFiftyMoveDraw()) {
+            over = true;
+            endMessage = "Draw by the fifty-move rule. Game over.";
+        } else if (chessGame.isInsufficientMaterial()) {
+            over = true;
+            endMessage = "Draw by insufficient material. Game over.";
+        } else if (chessGame.isInCheck(opponentColor)) {
+            endMessage = opponentColor + " is in check.";
+        }
+        if (over) {
+            chessGame.setGameOver(true);
+        } else if (tablebases != null) {
+            TablebaseResult result = chessGame.probeTablebases(tablebases);
+            if (result != null && !result.draw()) {
+                ChessGame.TeamColor winner = result.isWin() ? opponentColor : opponentColor.opponent();
+                String forecast = winner + " can force mate in " + result.movesToMate() + " moves.";
+                endMessage = endMessage == null ? forecast : endMessage + " " + forecast;
             }
         }
+        return endMessage;
     }
 
     public void leave(String token, Integer gameID, Session session) {
         try {
             AuthToken authToken = authDAO.getAuth(token);
-            Game game = gameDAO.getGame(gameID);
-            String username = authToken.username();
-            connectionManager.remove(session, gameID);
-
-            if (username.equals(game.whiteUsername())) {
-                Game updatedGame = new Game (gameID, null, game.blackUsername(), game.gameName(), game.game());
-                gameDAO.updateGame(updatedGame);
-            }
-            else if (username.equals(game.blackUsername())) {
-                Game updatedGame = new Game (gameID, game.whiteUsername(), null, game.gameName(), game.game());
-                gameDAO.updateGame(updatedGame);
+            synchronized (gameLock(gameID)) {
+                Game game = gameDAO.getGame(gameID);
+                String username = authToken.username();
+                connectionManager.remove(session, gameID);
+                analysis.stop(session);
+
+                if (username.equals(game.whiteUsername())) {
+                    Game updatedGame = new Game (gameID, null, game.blackUsername(), game.gameName(), game.game());
+                    gameDAO.updateGame(updatedGame);
+                }
+                else if (username.equals(game.blackUsername())) {
+                    Game updatedGame = new Game (gameID, game.whiteUsername(), null, game.gameName(), game.game());
+                    gameDAO.updateGame(updatedGame);
+                }
+
+                String message = username + " left the game.";
+                NotificationMessage notificationMessage = new NotificationMessage(message);
+                connectionManager.broadcast(gameID, username, notificationMessage);
             }
 
-            String message = username + " left the game.";
-            NotificationMessage notificationMessage = new NotificationMessage(message);
-            connectionManager.broadcast(gameID, username, notificationMessage);
-
         } catch (DataAccessException | IOException e) {
             sendErrorMessage(session, "Error: " + e.getMessage());
         }
@@ -215,28 +392,58 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
     public void resign(String token, Integer gameID, Session session) {
         try {
             AuthToken authToken = authDAO.getAuth(token);
-            Game game = gameDAO.getGame(gameID);
+            synchronized (gameLock(gameID)) {
+                Game game = gameDAO.getGame(gameID);
+                String username = authToken.username();
+                ChessGame chessGame = game.game();
+                ChessGame.TeamColor turnColor = chessGame.getTeamTurn();
+                if (!(username.equals(game.whiteUsername()) || username.equals(game.blackUsername()))) {
+                    throw new DataAccessException("Error: Observing.");
+                }
+                if (chessGame.isGameOver()) {
+                    throw new DataAccessException("Error: Game over.");
+                }
+                chessGame.setGameOver(true);
+                gameDAO.updateGame(game);
+                String message = username + " resigned. Game over.";
+                NotificationMessage notificationMessage = new NotificationMessage(message);
+                connectionManager.broadcast(gameID, null, notificationMessage);
+            }
+        } catch (DataAccessException | IOException e) {
+            sendErrorMessage(session, "Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts streaming the best lines of a game's position to a connection. Players
+     * may only analyze their game once it is over.
+     */
+    private void analyze(String token, Integer gameID, int lines, Session session) {
+        try {
+            AuthToken authToken = authDAO.getAuth(token);
+            if (authToken == null) {
+                throw new DataAccessException("Unauthorized");
+            }
             String username = authToken.username();
-            ChessGame chessGame = game.game();
-            ChessGame.TeamColor turnColor = chessGame.getTeamTurn();
-            if (!(username.equals(game.whiteUsername()) || username.equals(game.blackUsername()))) {
-                throw new DataAccessException("Error: Observing.");
+            Game game = gameDAO.getGame(gameID);
+            if (game == null) {
+                throw new DataAccessException("Game does not exist.");
             }
-            if (chessGame.isGameOver()) {
-                throw new DataAccessException("Error: Game over.");
+            boolean player = username.equals(game.whiteUsername()) || username.equals(game.blackUsername());
+            if (player && !game.game().isGameOver()) {
+                throw new DataAccessException("Players cannot analyze a game in progress.");
             }
-            chessGame.setGameOver(true);
-            gameDAO.updateGame(game);
-            String message = username + " resigned. Game over.";
-            NotificationMessage notificationMessage = new NotificationMessage(message);
-            connectionManager.broadcast(gameID, null, notificationMessage);
-        } catch (DataAccessException | IOException e) {
+            if (!analysis.start(session, gameID, game.game(), lines)) {
+                throw new DataAccessException("The analysis workers are busy. Try again later.");
+            }
+        } catch (DataAccessException e) {
             sendErrorMessage(session, "Error: " + e.getMessage());
         }
     }
 
     @Override
     public void handleClose(WsCloseContext ctx) {
+        analysis.stop(ctx.session);
         System.out.println("Websocket closed");
     }
 
@@ -257,7 +464,7 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
     private void sendErrorMessage(Session session, String message) {
         try {
             ErrorMessage errorMessage = new ErrorMessage(message);
-            session.getRemote().sendString(new Gson().toJson(errorMessage));
+            Connection.send(session, new Gson().toJson(errorMessage));
         } catch (IOException e) {
             System.out.println("Unable to create error message.");
         }
@@ -15,17 +15,28 @@ import result.JoinResult;
 import result.ListResult;
 
 import java.util.Collection;
+import java.util.function.IntConsumer;
 
 public class GameService {
 
     private final UserDAO userDAO;
     private final AuthDAO authDAO;
     private final GameDAO gameDAO;
+    private final IntConsumer computerSeated;
 
     public GameService(UserDAO userDAO, AuthDAO authDAO, GameDAO gameDAO) {
+        this(userDAO, authDAO, gameDAO, gameID -> { });
+    }
+
+    /**
+     * @param computerSeated called with a game's ID once the computer takes a seat
+     *                       in it, so it can move if it is its turn
+     */
+    public GameService(UserDAO userDAO, AuthDAO authDAO, GameDAO gameDAO, IntConsumer computerSeated) {
         this.userDAO = userDAO;
         this.authDAO = authDAO;
         this.gameDAO = gameDAO;
+        this.computerSeated = computerSeated;
     }
 
     public CreateResult create(String token, CreateRequest createRequest) throws DataAccessException {
@@ -73,6 +84,12 @@ public class GameService {
             if (blackUsername != null) {
                 throw new DataAccessException("Error: already taken");
             }
+            if (joinRequest.vsComputer()) {
+                if (whiteUsername != null) {
+                    throw new DataAccessException("Error: already taken");
+                }
+                whiteUsername = Game.COMPUTER;
+            }
             Game updatedGame = new Game(gameID, whiteUsername, username, gameName, chessGame);
             gameDAO.updateGame(updatedGame);
         }
@@ -80,12 +97,21 @@ public class GameService {
             if (game.whiteUsername() != null) {
                 throw new DataAccessException("Error: already taken");
             }
+            if (joinRequest.vsComputer()) {
+                if (blackUsername != null) {
+                    throw new DataAccessException("Error: already taken");
+                }
+                blackUsername = Game.COMPUTER;
+            }
             Game updatedGame = new Game(gameID, username, blackUsername, gameName, chessGame);
             gameDAO.updateGame(updatedGame);
         }
         else {
             throw new DataAccessException("Error: bad request");
         }
+        if (joinRequest.vsComputer()) {
+            computerSeated.accept(gameID);
+        }
 
         return new JoinResult();
     }
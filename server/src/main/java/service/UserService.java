@@ -3,6 +3,7 @@ package service;
 import dataaccess.*;
 import dataaccess.DataAccessException;
 import model.AuthToken;
+import model.Game;
 import model.User;
 import org.mindrot.jbcrypt.BCrypt;
 import request.LoginRequest;
@@ -32,7 +33,7 @@ public class UserService {
             throw new DataAccessException("Error: bad request");
         }
 
-        if (userDAO.getUser(username) != null) {
+        if (username.equals(Game.COMPUTER) || userDAO.getUser(username) != null) {
             throw new DataAccessException("Error: already taken");
         }
 
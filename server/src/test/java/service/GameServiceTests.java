@@ -8,7 +8,9 @@ import org.junit.jupiter.api.Test;
 import request.*;
 import result.*;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -75,6 +77,22 @@ public class GameServiceTests {
         assertEquals("Isaac", updatedGame.blackUsername());
     }
 
+    @Test
+    public void joinVsComputer() throws DataAccessException {
+        List<Integer> seated = new ArrayList<>();
+        GameService computerGame = new GameService(userDAO, authDAO, gameDAO, seated::add);
+        RegisterRequest registerRequest = new RegisterRequest("Isaac", "mypassword", "isaac@email.com");
+        RegisterResult registerResult = user.register(registerRequest);
+
+        String token = registerResult.authToken();
+        int gameID = computerGame.create(token, new CreateRequest("Test Game", token)).gameID();
+        computerGame.join(token, new JoinRequest(ChessGame.TeamColor.BLACK, gameID, token, true));
+
+        Game updatedGame = gameDAO.getGame(gameID);
+        assertEquals(Game.COMPUTER, updatedGame.whiteUsername());
+        assertEquals(List.of(gameID), seated);
+    }
+
     @Test
     public void joinNegative() throws DataAccessException {
         RegisterRequest registerRequest = new RegisterRequest("Isaac", "mypassword", "isaac@email.com");
@@ -0,0 +1,310 @@
+package chess;
+
+import chess.piececalculators.AttackTables;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of the pieces on a chessboard. Each of the twelve
+ * color/type combinations gets its own 64-bit mask, with bit 0 as row 1, column 1
+ * and bit 63 as row 8, column 8. A byte-per-square mailbox is kept alongside the
+ * masks so the piece on a square can be read without testing all twelve, and a
+ * material signature packs the count of each piece into four bits of a long.
+ * The {@link PieceSquareTables} score and game phase of the pieces are kept up
+ * to date as they are put and removed, so evaluation never has to add them up.
+ * A second Zobrist key covers only the pawns, for caching pawn structure.
+ * <p>
+ * Outside this package a bitboard can only be read. It changes only through the
+ * {@link ChessBoard} that owns it, which keeps its squares in step.
+ */
+public final class Bitboard {
+
+    public static final int EMPTY = -1;
+    public static final int PIECE_KINDS = 12;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final int KING = ChessPiece.PieceType.KING.ordinal();
+    private static final int QUEEN = ChessPiece.PieceType.QUEEN.ordinal();
+    private static final int BISHOP = ChessPiece.PieceType.BISHOP.ordinal();
+    private static final int KNIGHT = ChessPiece.PieceType.KNIGHT.ordinal();
+    private static final int ROOK = ChessPiece.PieceType.ROOK.ordinal();
+    private static final int PAWN = ChessPiece.PieceType.PAWN.ordinal();
+
+    final long[] pieces = new long[PIECE_KINDS];
+    final long[] colors = new long[2];
+    long occupied;
+    final byte[] mailbox = new byte[64];
+    final int[] kingSquares = {EMPTY, EMPTY};
+    long key;
+    long pawnKey;
+    long material;
+    int psqt;
+    int phase;
+
+    Bitboard() {
+        Arrays.fill(mailbox, (byte) EMPTY);
+    }
+
+    Bitboard(Bitboard other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, PIECE_KINDS);
+        System.arraycopy(other.colors, 0, colors, 0, 2);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, 64);
+        System.arraycopy(other.kingSquares, 0, kingSquares, 0, 2);
+        occupied = other.occupied;
+        key = other.key;
+        pawnKey = other.pawnKey;
+        material = other.material;
+        psqt = other.psqt;
+        phase = other.phase;
+    }
+
+    /**
+     * Builds a bitboard from a row-major array of pieces, where squares[0][0]
+     * is row 1, column 1. Pieces in the array are swapped for their shared
+     * instances, which matters for boards Gson has just deserialized.
+     */
+    static Bitboard of(ChessPiece[][] squares) {
+        Bitboard bitboard = new Bitboard();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                ChessPiece piece = squares[row][col];
+                if (piece != null) {
+                    squares[row][col] = ChessPiece.of(piece.getTeamColor(), piece.getPieceType());
+                    bitboard.put(row * 8 + col, pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+                }
+            }
+        }
+        return bitboard;
+    }
+
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    public static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    /**
+     * @return the shared ChessPosition for a square index
+     */
+    public static ChessPosition position(int square) {
+        return ChessPosition.of(row(square), column(square));
+    }
+
+    /**
+     * @return the shared ChessPiece for a piece index
+     */
+    public static ChessPiece piece(int piece) {
+        return ChessPiece.of(colorOf(piece), typeOf(piece));
+    }
+
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    public static ChessGame.TeamColor colorOf(int piece) {
+        return piece < 6 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+    }
+
+    public static ChessPiece.PieceType typeOf(int piece) {
+        return TYPES[piece % 6];
+    }
+
+    /**
+     * Places a piece on a square, replacing whatever was there
+     *
+     * @param square the square index
+     * @param piece  the piece index, or {@link #EMPTY} to clear the square
+     */
+    void set(int square, int piece) {
+        int previous = mailbox[square];
+        if (previous != EMPTY) {
+            remove(square, previous);
+        }
+        if (piece != EMPTY) {
+            put(square, piece);
+        }
+    }
+
+    void put(int square, int piece) {
+        long bit = 1L << square;
+        pieces[piece] |= bit;
+        colors[piece / 6] |= bit;
+        occupied |= bit;
+        mailbox[square] = (byte) piece;
+        key ^= Zobrist.piece(piece, square);
+        if (piece % 6 == PAWN) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+        material += 1L << (piece * 4);
+        psqt += PieceSquareTables.score(piece, square);
+        phase += PieceSquareTables.phase(piece);
+        if (piece % 6 == KING) {
+            kingSquares[piece / 6] = square;
+        }
+    }
+
+    void remove(int square, int piece) {
+        long bit = ~(1L << square);
+        pieces[piece] &= bit;
+        colors[piece / 6] &= bit;
+        occupied &= bit;
+        mailbox[square] = (byte) EMPTY;
+        key ^= Zobrist.piece(piece, square);
+        if (piece % 6 == PAWN) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+        material -= 1L << (piece * 4);
+        psqt -= PieceSquareTables.score(piece, square);
+        phase -= PieceSquareTables.phase(piece);
+        if (piece % 6 == KING && kingSquares[piece / 6] == square) {
+            long kings = pieces[piece];
+            kingSquares[piece / 6] = kings == 0 ? EMPTY : 63 - Long.numberOfLeadingZeros(kings);
+        }
+    }
+
+    /**
+     * @return the piece index on the square, or {@link #EMPTY}
+     */
+    public int pieceAt(int square) {
+        return mailbox[square];
+    }
+
+    /**
+     * @return the Zobrist key of the pieces on the board, not counting whose turn it is
+     */
+    public long key() {
+        return key;
+    }
+
+    /**
+     * @return the Zobrist key of the pawns alone, 0 when there are none
+     */
+    public long pawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * @return the material signature, holding the number of pieces with index i in
+     * bits 4i to 4i+3
+     */
+    public long material() {
+        return material;
+    }
+
+    /**
+     * @return how many of the given piece are on the board
+     */
+    public int count(int piece) {
+        return (int) (material >>> (piece * 4)) & 0xF;
+    }
+
+    /**
+     * @return the packed {@link PieceSquareTables} score of every piece, white
+     * minus black
+     */
+    public int psqt() {
+        return psqt;
+    }
+
+    /**
+     * @return the game phase from the pieces left, which can exceed
+     * {@link PieceSquareTables#MAX_PHASE} after promotions
+     */
+    public int phase() {
+        return phase;
+    }
+
+    /**
+     * @return the square of the given team's king, or {@link #EMPTY} if it has none
+     */
+    public int kingSquare(ChessGame.TeamColor color) {
+        return kingSquares[color.ordinal()];
+    }
+
+    /**
+     * Determines whether any piece of the given team attacks a square, looking
+     * outwards from the square for each kind of attacker and stopping at the first
+     *
+     * @param square the square index being attacked
+     * @param by     the attacking team
+     * @return True if a piece of that team attacks the square
+     */
+    public boolean isAttacked(int square, ChessGame.TeamColor by) {
+        return isAttacked(square, by, occupied);
+    }
+
+    /**
+     * Same as {@link #isAttacked(int, ChessGame.TeamColor)}, but sliding attacks
+     * are blocked by the given occupancy instead of the board's, which lets a king
+     * test squares along the ray it is stepping away from
+     */
+    public boolean isAttacked(int square, ChessGame.TeamColor by, long occupied) {
+        int base = by.ordinal() * 6;
+        if ((AttackTables.knightAttacks(square) & pieces[base + KNIGHT]) != 0) {
+            return true;
+        }
+        if ((AttackTables.pawnAttacks(by.opponent(), square) & pieces[base + PAWN]) != 0) {
+            return true;
+        }
+        if ((AttackTables.kingAttacks(square) & pieces[base + KING]) != 0) {
+            return true;
+        }
+        long queens = pieces[base + QUEEN];
+        if ((AttackTables.bishopAttacks(square, occupied) & (pieces[base + BISHOP] | queens)) != 0) {
+            return true;
+        }
+        return (AttackTables.rookAttacks(square, occupied) & (pieces[base + ROOK] | queens)) != 0;
+    }
+
+    /**
+     * @return every piece of the given team that attacks the square
+     */
+    public long attackersTo(int square, ChessGame.TeamColor by) {
+        int base = by.ordinal() * 6;
+        long queens = pieces[base + QUEEN];
+        return (AttackTables.knightAttacks(square) & pieces[base + KNIGHT])
+                | (AttackTables.pawnAttacks(by.opponent(), square) & pieces[base + PAWN])
+                | (AttackTables.kingAttacks(square) & pieces[base + KING])
+                | (AttackTables.bishopAttacks(square, occupied) & (pieces[base + BISHOP] | queens))
+                | (AttackTables.rookAttacks(square, occupied) & (pieces[base + ROOK] | queens));
+    }
+
+    public long pieces(int piece) {
+        return pieces[piece];
+    }
+
+    public long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieces[pieceIndex(color, type)];
+    }
+
+    public long color(ChessGame.TeamColor color) {
+        return colors[color.ordinal()];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Bitboard that = (Bitboard) o;
+        return key == that.key && Arrays.equals(pieces, that.pieces);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(key);
+    }
+}
@@ -0,0 +1,78 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Castling rights, kept as a 4-bit mask with one bit for each side a team may
+ * still castle to. A move clears a right by touching either its king's or its
+ * rook's home square, so updating the rights after any move is two table lookups.
+ */
+public final class Castling {
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 1 << 1;
+    public static final int BLACK_KINGSIDE = 1 << 2;
+    public static final int BLACK_QUEENSIDE = 1 << 3;
+    public static final int NONE = 0;
+    public static final int ALL = 0xF;
+
+    // The rights that survive a move to or from each square
+    private static final int[] KEPT = new int[64];
+
+    static {
+        Arrays.fill(KEPT, ALL);
+        KEPT[Bitboard.square(1, 5)] = ALL & ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        KEPT[Bitboard.square(1, 8)] = ALL & ~WHITE_KINGSIDE;
+        KEPT[Bitboard.square(1, 1)] = ALL & ~WHITE_QUEENSIDE;
+        KEPT[Bitboard.square(8, 5)] = ALL & ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        KEPT[Bitboard.square(8, 8)] = ALL & ~BLACK_KINGSIDE;
+        KEPT[Bitboard.square(8, 1)] = ALL & ~BLACK_QUEENSIDE;
+    }
+
+    private Castling() {
+    }
+
+    /**
+     * @return the rights left after a move between the two squares
+     */
+    public static int update(int rights, int from, int to) {
+        return rights & KEPT[from] & KEPT[to];
+    }
+
+    /**
+     * @return both rights of a team
+     */
+    public static int rights(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? WHITE_KINGSIDE | WHITE_QUEENSIDE : BLACK_KINGSIDE | BLACK_QUEENSIDE;
+    }
+
+    /**
+     * @return the right of a team to castle kingside or queenside
+     */
+    public static int rights(ChessGame.TeamColor color, boolean kingside) {
+        int right = kingside ? WHITE_KINGSIDE : WHITE_QUEENSIDE;
+        return color == ChessGame.TeamColor.WHITE ? right : right << 2;
+    }
+
+    /**
+     * Guesses the rights of a board set up without a history: a team may castle
+     * to a side if its king and that side's rook are both on their home squares
+     */
+    public static int infer(Bitboard bitboard) {
+        int rights = NONE;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            int row = color == ChessGame.TeamColor.WHITE ? 1 : 8;
+            if (bitboard.kingSquare(color) != Bitboard.square(row, 5)) {
+                continue;
+            }
+            long rooks = bitboard.pieces(color, ChessPiece.PieceType.ROOK);
+            if ((rooks & (1L << Bitboard.square(row, 8))) != 0) {
+                rights |= rights(color, true);
+            }
+            if ((rooks & (1L << Bitboard.square(row, 1))) != 0) {
+                rights |= rights(color, false);
+            }
+        }
+        return rights;
+    }
+}
@@ -1,8 +1,5 @@
 package chess;
 
-import java.util.Arrays;
-import java.util.Objects;
-
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
@@ -12,10 +9,26 @@ import java.util.Objects;
 public class ChessBoard {
 
     ChessPiece[][] squares  = new ChessPiece[8][8];
+    private transient Bitboard bitboard;
+
     public ChessBoard() {
         
     }
 
+    /**
+     * Creates a copy of another board that can be changed independently
+     *
+     * @param other the board to copy
+     */
+    public ChessBoard(ChessBoard other) {
+        for (int row = 0; row < 8; row++) {
+            System.arraycopy(other.squares[row], 0, squares[row], 0, 8);
+        }
+        if (other.bitboard != null) {
+            bitboard = new Bitboard(other.bitboard);
+        }
+    }
+
     /**
      * Adds a chess piece to the chessboard
      *
@@ -24,6 +37,20 @@ public class ChessBoard {
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
         squares[position.getRow() - 1][position.getColumn() - 1] = piece;
+        if (bitboard != null) {
+            int pieceIndex = piece == null ? Bitboard.EMPTY
+                    : Bitboard.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            bitboard.set(Bitboard.square(position), pieceIndex);
+        }
+    }
+
+    /**
+     * Same as {@link #addPiece(ChessPosition, ChessPiece)}, but takes a square and
+     * piece index as used by {@link Bitboard}
+     */
+    void set(int square, int piece) {
+        squares[square >>> 3][square & 7] = piece == Bitboard.EMPTY ? null : Bitboard.piece(piece);
+        getBitboard().set(square, piece);
     }
 
     /**
@@ -43,11 +70,12 @@ public class ChessBoard {
      */
     public void resetBoard() {
         this.squares = new ChessPiece[8][8];
+        this.bitboard = null;
         for (int i = 1; i < 9; i ++) {
-            ChessPosition posBlack = new ChessPosition(7, i);
-            ChessPosition posWhite = new ChessPosition(2, i);
-            ChessPiece pieceBlack = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
-            ChessPiece pieceWhite = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+            ChessPosition posBlack = ChessPosition.of(7, i);
+            ChessPosition posWhite = ChessPosition.of(2, i);
+            ChessPiece pieceBlack = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+            ChessPiece pieceWhite = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
             addPiece(posBlack, pieceBlack);
             addPiece(posWhite, pieceWhite);
         }
@@ -56,12 +84,38 @@ public class ChessBoard {
                 ChessPiece.PieceType.KING, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
         };
         for (int i = 1; i <= 8; i++) {
-            ChessPosition posWhite = new ChessPosition(1, i);
-            ChessPosition posBlack = new ChessPosition(8, i);
+            ChessPosition posWhite = ChessPosition.of(1, i);
+            ChessPosition posBlack = ChessPosition.of(8, i);
             ChessPiece.PieceType type = rowOrder[i - 1];
-            addPiece(posWhite, new ChessPiece(ChessGame.TeamColor.WHITE, type));
-            addPiece(posBlack, new ChessPiece(ChessGame.TeamColor.BLACK, type));
+            addPiece(posWhite, ChessPiece.of(ChessGame.TeamColor.WHITE, type));
+            addPiece(posBlack, ChessPiece.of(ChessGame.TeamColor.BLACK, type));
+        }
+    }
+
+    /**
+     * Determines if a square is attacked by any piece of the given team
+     *
+     * @param position the square to test
+     * @param by       the attacking team
+     * @return True if a piece of that team could capture on the square
+     */
+    public boolean isSquareAttacked(ChessPosition position, ChessGame.TeamColor by) {
+        return getBitboard().isAttacked(Bitboard.square(position), by);
+    }
+
+    /**
+     * Gets the bitboard view of this board. It is built on first use (boards
+     * deserialized from JSON only carry the squares) and kept in sync by addPiece
+     * from then on. It cannot be changed from outside this package, so it can
+     * only change along with the board.
+     *
+     * @return the bitboard backing this board
+     */
+    public Bitboard getBitboard() {
+        if (bitboard == null) {
+            bitboard = Bitboard.of(squares);
         }
+        return bitboard;
     }
 
     @Override
@@ -70,11 +124,11 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(squares, that.squares);
+        return getBitboard().equals(that.getBitboard());
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return getBitboard().hashCode();
     }
 }
\ No newline at end of file
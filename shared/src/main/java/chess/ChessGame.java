@@ -1,7 +1,10 @@
 package chess;
 
+import chess.piececalculators.AttackTables;
+
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -12,9 +15,23 @@ import java.util.Objects;
  */
 public class ChessGame {
 
+    private static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+    // Material signature bits for the pawns, rooks and queens of both teams
+    private static final long MATING_MATERIAL = signatureMask(ChessPiece.PieceType.PAWN)
+            | signatureMask(ChessPiece.PieceType.ROOK) | signatureMask(ChessPiece.PieceType.QUEEN);
+    // Left in place of the castling rights until they are first needed, so that
+    // games stored before the rights were kept infer them from their board
+    private static final int UNKNOWN_CASTLING = -1;
+
     private ChessBoard board;
     private TeamColor teamTurn;
     private boolean gameOver = false;
+    private int castlingRights = UNKNOWN_CASTLING;
+    private int enPassantSquare = Bitboard.EMPTY;
+    private int halfmoveClock = 0;
+    private int fullmoveNumber = 1;
+    private MoveHistory history = new MoveHistory();
+    private transient PositionStatus[] statuses;
 
     public ChessGame() {
         this.board = new ChessBoard();
@@ -22,6 +39,23 @@ public class ChessGame {
         this.teamTurn = TeamColor.WHITE;
     }
 
+    /**
+     * Creates a copy of another game, with its own board, that can be played on
+     * independently
+     *
+     * @param other the game to copy
+     */
+    public ChessGame(ChessGame other) {
+        this.board = new ChessBoard(other.board);
+        this.teamTurn = other.teamTurn;
+        this.gameOver = other.gameOver;
+        this.castlingRights = other.getCastlingRights();
+        this.enPassantSquare = other.enPassantSquare;
+        this.halfmoveClock = other.halfmoveClock;
+        this.fullmoveNumber = other.fullmoveNumber;
+        this.history = new MoveHistory(other.history());
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -35,6 +69,9 @@ public class ChessGame {
      * @param team the team whose turn it is
      */
     public void setTeamTurn(TeamColor team) {
+        if (team != teamTurn) {
+            enPassantSquare = Bitboard.EMPTY;
+        }
         teamTurn = team;
     }
 
@@ -43,7 +80,14 @@ public class ChessGame {
      */
     public enum TeamColor {
         WHITE,
-        BLACK
+        BLACK;
+
+        /**
+         * @return the team playing against this one
+         */
+        public TeamColor opponent() {
+            return this == WHITE ? BLACK : WHITE;
+        }
     }
 
     public boolean isGameOver() {
@@ -53,6 +97,151 @@ public class ChessGame {
     public void setGameOver(boolean gameOver) {
         this.gameOver = gameOver;
     }
+
+    /**
+     * @return the {@link Castling} rights both teams still have, inferred from the
+     * board for a game stored without them
+     */
+    public int getCastlingRights() {
+        if (castlingRights == UNKNOWN_CASTLING) {
+            castlingRights = Castling.infer(board.getBitboard());
+        }
+        return castlingRights;
+    }
+
+    void setCastlingRights(int castlingRights) {
+        this.castlingRights = castlingRights;
+        invalidateStatus();
+    }
+
+    /**
+     * @return the square the side to move could capture onto en passant, or
+     * {@link Bitboard#EMPTY} if no such capture is possible
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    /**
+     * Sets the square skipped by a pawn that just moved two squares, ignoring it
+     * unless a pawn of the side to move could actually capture there, so that
+     * positions differing only in an unusable en passant square hash alike
+     */
+    void setEnPassantSquare(int square) {
+        enPassantSquare = Bitboard.EMPTY;
+        if (square != Bitboard.EMPTY) {
+            long capturers = AttackTables.pawnAttacks(teamTurn.opponent(), square)
+                    & board.getBitboard().pieces(teamTurn, ChessPiece.PieceType.PAWN);
+            if (capturers != 0) {
+                enPassantSquare = square;
+            }
+        }
+        invalidateStatus();
+    }
+
+    /**
+     * @return the number of moves by either team since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * @return the number of the current full move, starting at 1 and increasing
+     * after each of black's moves
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Determines if the current position has now occurred three times with the same
+     * team to move, the same castling rights and the same en passant capture.
+     * Only positions since the last capture or pawn move can match, and the game is
+     * drawn by the fifty-move rule after 100 of those, so at most 50 earlier
+     * positions are ever compared.
+     *
+     * @return True if the position has been repeated three times
+     */
+    public boolean isThreefoldRepetition() {
+        return repetitions() >= 2;
+    }
+
+    /**
+     * @return how many times the current position occurred before, since the last
+     * capture or pawn move
+     */
+    public int repetitions() {
+        MoveHistory history = history();
+        int oldest = Math.max(0, history.size() - halfmoveClock);
+        long key = positionKey();
+        int repeats = 0;
+        for (int i = history.size() - 2; i >= oldest; i -= 2) {
+            if (history.key(i) == key) {
+                repeats++;
+            }
+        }
+        return repeats;
+    }
+
+    /**
+     * @return True if fifty moves by each team have passed without a capture or a
+     * pawn move
+     */
+    public boolean isFiftyMoveDraw() {
+        return halfmoveClock >= 100;
+    }
+
+    /**
+     * Determines if neither team has enough material left to ever checkmate: only
+     * kings remain, plus at most one knight or bishop, or any number of bishops
+     * that all stand on squares of the same color
+     *
+     * @return True if the position is a dead draw
+     */
+    public boolean isInsufficientMaterial() {
+        Bitboard bitboard = board.getBitboard();
+        if ((bitboard.material() & MATING_MATERIAL) != 0) {
+            return false;
+        }
+        int knights = bitboard.count(Bitboard.pieceIndex(TeamColor.WHITE, ChessPiece.PieceType.KNIGHT))
+                + bitboard.count(Bitboard.pieceIndex(TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        long bishops = bitboard.pieces(TeamColor.WHITE, ChessPiece.PieceType.BISHOP)
+                | bitboard.pieces(TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
+        if (knights + Long.bitCount(bishops) <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+    }
+
+    /**
+     * Looks the position up in endgame tables, which know the exact outcome of
+     * every position with few enough pieces
+     *
+     * @param tablebases the tables to look in
+     * @return the outcome for the team to move with best play, or null if no table
+     * covers the position or castling or en passant is still possible
+     */
+    public TablebaseResult probeTablebases(Tablebases tablebases) {
+        if (getCastlingRights() != Castling.NONE || enPassantSquare != Bitboard.EMPTY) {
+            return null;
+        }
+        return tablebases.probe(board.getBitboard(), teamTurn);
+    }
+
+    private static long signatureMask(ChessPiece.PieceType type) {
+        return (0xFL << (Bitboard.pieceIndex(TeamColor.WHITE, type) * 4))
+                | (0xFL << (Bitboard.pieceIndex(TeamColor.BLACK, type) * 4));
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -65,21 +254,70 @@ public class ChessGame {
         if (piece == null) {
             return null;
         }
-        Collection<ChessMove> rawMoves = piece.pieceMoves(board, startPosition);
+        MoveList legalMoves = status(piece.getTeamColor()).moves;
+        int from = Bitboard.square(startPosition);
         Collection<ChessMove> validMoves = new ArrayList<>();
-        for (ChessMove move : rawMoves) {
-            ChessPiece targetPiece = board.getPiece(move.getEndPosition());
-            board.addPiece(move.getEndPosition(), piece);
-            board.addPiece(move.getStartPosition(), null);
-            if (!isInCheck(piece.getTeamColor())) {
-                validMoves.add(move);
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int move = legalMoves.get(i);
+            if (PackedMove.from(move) == from) {
+                validMoves.add(PackedMove.toChessMove(move));
             }
-            board.addPiece(move.getEndPosition(), targetPiece);
-            board.addPiece(move.getStartPosition(), piece);
         }
         return validMoves;
     }
 
+    /**
+     * Gets every valid move the given team could make
+     *
+     * @param teamColor the team to get moves for
+     * @return all of that team's valid moves, empty if it has none
+     */
+    public Collection<ChessMove> legalMoves(TeamColor teamColor) {
+        return status(teamColor).moves.toChessMoves();
+    }
+
+    /**
+     * Legal moves and check status of one team, remembered for the position key
+     * they were computed at
+     */
+    private static final class PositionStatus {
+        private final MoveList moves = new MoveList();
+        private long key;
+        private boolean valid;
+        private boolean inCheck;
+    }
+
+    /**
+     * Gets the legal moves and check status of a team in the current position,
+     * generating them only if the position has changed since they were last asked
+     * for. Besides the explicit invalidation on makeMove and setBoard, the position
+     * key catches edits made directly through getBoard().
+     */
+    private PositionStatus status(TeamColor teamColor) {
+        if (statuses == null) {
+            statuses = new PositionStatus[]{new PositionStatus(), new PositionStatus()};
+        }
+        PositionStatus status = statuses[teamColor.ordinal()];
+        long key = positionKey();
+        if (!status.valid || status.key != key) {
+            status.moves.clear();
+            int enPassant = teamColor == teamTurn ? enPassantSquare : Bitboard.EMPTY;
+            MoveGenerator.legalMoves(board.getBitboard(), teamColor, getCastlingRights(), enPassant, -1L, status.moves);
+            status.inCheck = computeInCheck(teamColor);
+            status.key = key;
+            status.valid = true;
+        }
+        return status;
+    }
+
+    private void invalidateStatus() {
+        if (statuses != null) {
+            for (PositionStatus status : statuses) {
+                status.valid = false;
+            }
+        }
+    }
+
     /**
      * Makes a move in a chess game
      *
@@ -94,24 +332,173 @@ public class ChessGame {
         else if (piece.getTeamColor() != teamTurn) {
             throw new InvalidMoveException("Not your turn.");
         }
-        Collection<ChessMove> potentialMoves = validMoves(move.getStartPosition());
-        if (!potentialMoves.contains(move)) {
+        int packed = status(teamTurn).moves.find(PackedMove.of(move));
+        if (packed == PackedMove.NONE) {
             throw new InvalidMoveException("Not a valid move.");
         }
-        if (move.getPromotionPiece() == null) {
-            board.addPiece(move.getEndPosition(), piece);
+        play(packed);
+    }
+
+    /**
+     * Adds every legal move of the team to move, as {@link PackedMove} ints that
+     * {@link #play(int)} accepts. Unlike {@link #legalMoves(TeamColor)} this neither
+     * allocates nor caches, which suits callers that walk the game tree.
+     *
+     * @param moves the list to add the moves to
+     */
+    public void generateMoves(MoveList moves) {
+        MoveGenerator.legalMoves(board.getBitboard(), teamTurn, getCastlingRights(), enPassantSquare, -1L, moves);
+    }
+
+    /**
+     * Plays a move without checking that it is legal, recording it so it can be
+     * undone
+     *
+     * @param move a packed move from {@link #generateMoves(MoveList)} in the
+     *             current position
+     */
+    public void play(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        Bitboard bitboard = board.getBitboard();
+        history().push(MoveHistory.entry(move, bitboard.pieceAt(to), gameOver, getCastlingRights(), enPassantSquare,
+                halfmoveClock), positionKey());
+        apply(move, bitboard.pieceAt(from));
+    }
+
+    private void apply(int move, int piece) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        TeamColor color = Bitboard.colorOf(piece);
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        int moved = promotion == null ? piece : Bitboard.pieceIndex(color, promotion);
+        boolean pawn = Bitboard.typeOf(piece) == ChessPiece.PieceType.PAWN;
+        halfmoveClock = pawn || board.getBitboard().pieceAt(to) != Bitboard.EMPTY ? 0 : halfmoveClock + 1;
+        if (color == TeamColor.BLACK) {
+            fullmoveNumber++;
         }
-        else if (move.getPromotionPiece() != null) {
-            ChessPiece promotionPiece = new ChessPiece(teamTurn, move.getPromotionPiece());
-            board.addPiece(move.getEndPosition(), promotionPiece);
+        board.set(to, moved);
+        board.set(from, Bitboard.EMPTY);
+
+        int flags = PackedMove.flags(move);
+        if ((flags & PackedMove.CASTLE) != 0) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = (from + to) / 2;
+            board.set(rookTo, board.getBitboard().pieceAt(rookFrom));
+            board.set(rookFrom, Bitboard.EMPTY);
+        } else if ((flags & PackedMove.EN_PASSANT) != 0) {
+            board.set(color == TeamColor.WHITE ? to - 8 : to + 8, Bitboard.EMPTY);
         }
-        board.addPiece(move.getStartPosition(), null);
+
+        castlingRights = Castling.update(getCastlingRights(), from, to);
+        teamTurn = color.opponent();
+        boolean doublePush = pawn && Math.abs(to - from) == 16;
+        setEnPassantSquare(doublePush ? (from + to) / 2 : Bitboard.EMPTY);
+    }
+
+    /**
+     * Takes back the last move played
+     *
+     * @return the move taken back, or null if no moves have been played
+     */
+    public ChessMove undoMove() {
+        int move = undo();
+        return move == PackedMove.NONE ? null : PackedMove.toChessMove(move);
+    }
+
+    /**
+     * Same as {@link #undoMove()}, without building a ChessMove
+     *
+     * @return the packed move taken back, or {@link PackedMove#NONE} if no moves
+     * have been played
+     */
+    public int undo() {
+        MoveHistory history = history();
+        if (!history.canUndo()) {
+            return PackedMove.NONE;
+        }
+        long entry = history.undo();
+        int move = MoveHistory.move(entry);
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int piece = board.getBitboard().pieceAt(to);
+        teamTurn = Bitboard.colorOf(piece);
+        if (PackedMove.promotion(move) != null) {
+            piece = Bitboard.pieceIndex(teamTurn, ChessPiece.PieceType.PAWN);
+        }
+        board.set(from, piece);
+        board.set(to, MoveHistory.captured(entry));
+
+        int flags = PackedMove.flags(move);
+        if ((flags & PackedMove.CASTLE) != 0) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = (from + to) / 2;
+            board.set(rookFrom, board.getBitboard().pieceAt(rookTo));
+            board.set(rookTo, Bitboard.EMPTY);
+        } else if ((flags & PackedMove.EN_PASSANT) != 0) {
+            int pawn = Bitboard.pieceIndex(teamTurn.opponent(), ChessPiece.PieceType.PAWN);
+            board.set(teamTurn == TeamColor.WHITE ? to - 8 : to + 8, pawn);
+        }
+
+        gameOver = MoveHistory.gameOver(entry);
+        castlingRights = MoveHistory.castling(entry);
+        enPassantSquare = MoveHistory.enPassant(entry);
+        halfmoveClock = MoveHistory.halfmoveClock(entry);
         if (teamTurn == TeamColor.BLACK) {
-            teamTurn = TeamColor.WHITE;
+            fullmoveNumber--;
+        }
+        invalidateStatus();
+        return move;
+    }
+
+    /**
+     * Plays again the last move taken back by {@link #undoMove()}, as long as no
+     * other move has been made since
+     *
+     * @return the move played, or null if there is nothing to redo
+     */
+    public ChessMove redoMove() {
+        MoveHistory history = history();
+        if (!history.canRedo()) {
+            return null;
         }
-        else if (teamTurn == TeamColor.WHITE) {
-            teamTurn = TeamColor.BLACK;
+        int move = MoveHistory.move(history.redo());
+        apply(move, board.getBitboard().pieceAt(PackedMove.from(move)));
+        return PackedMove.toChessMove(move);
+    }
+
+    /**
+     * @return the moves played so far, oldest first, not counting undone ones
+     */
+    public List<ChessMove> moveHistory() {
+        MoveHistory history = history();
+        List<ChessMove> moves = new ArrayList<>(history.size());
+        for (int i = 0; i < history.size(); i++) {
+            moves.add(PackedMove.toChessMove(MoveHistory.move(history.get(i))));
+        }
+        return moves;
+    }
+
+    // Games stored before the history was added deserialize without one
+    private MoveHistory history() {
+        if (history == null) {
+            history = new MoveHistory();
+        }
+        return history;
+    }
+
+    /**
+     * Finds the given team's king
+     *
+     * @param teamColor which team's king to find
+     * @return the king's position, or null if the team has no king on the board
+     */
+    public ChessPosition kingPosition(TeamColor teamColor) {
+        int square = board.getBitboard().kingSquare(teamColor);
+        if (square == Bitboard.EMPTY) {
+            return null;
         }
+        return Bitboard.position(square);
     }
 
     /**
@@ -120,42 +507,23 @@ public class ChessGame {
      * @param teamColor which team to check for check
      * @return True if the specified team is in check
      */
-    public ChessPosition kingPosition(TeamColor teamColor) {
-        ChessPosition kingPosition = null;
-        for(int row = 1; row < 9; row++) {
-            for(int col = 1; col < 9; col++) {
-                ChessPosition targetPosition = new ChessPosition(row, col);
-                ChessPiece targetPiece = board.getPiece(targetPosition);
-                if (targetPiece == null) {
-                    continue;
-                }
-                if (targetPiece.getPieceType() == ChessPiece.PieceType.KING && targetPiece.getTeamColor() == teamColor) {
-                    kingPosition = new ChessPosition(row, col);
-                }
+    public boolean isInCheck(TeamColor teamColor) {
+        if (statuses != null) {
+            PositionStatus status = statuses[teamColor.ordinal()];
+            if (status.valid && status.key == positionKey()) {
+                return status.inCheck;
             }
         }
-        return kingPosition;
+        return computeInCheck(teamColor);
     }
 
-
-    public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = kingPosition(teamColor);
-        for(int row = 1; row < 9; row++) {
-            for(int col = 1; col < 9; col++) {
-                ChessPosition targetPosition = new ChessPosition(row, col);
-                ChessPiece targetPiece = board.getPiece(targetPosition);
-                if (targetPiece == null || targetPiece.getTeamColor() == teamColor) {
-                    continue;
-                }
-                Collection<ChessMove> enemyMoves = targetPiece.pieceMoves(board, targetPosition);
-                for (ChessMove move : enemyMoves) {
-                    if (move.getEndPosition().equals(kingPosition)) {
-                        return true;
-                    }
-                }
-            }
+    private boolean computeInCheck(TeamColor teamColor) {
+        Bitboard bitboard = board.getBitboard();
+        int kingSquare = bitboard.kingSquare(teamColor);
+        if (kingSquare == Bitboard.EMPTY) {
+            return false;
         }
-        return false;
+        return bitboard.isAttacked(kingSquare, teamColor.opponent());
     }
 
     /**
@@ -165,30 +533,8 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        ChessPosition kingPosition = kingPosition(teamColor);
-        if (!isInCheck(teamColor)) {
-            return false;
-        }
-        Collection<ChessMove> kkingMoves = validMoves(kingPosition);
-        if (!kkingMoves.isEmpty()) {
-            return false;
-        }
-        for(int row = 1; row < 9; row++) {
-            for (int col = 1; col < 9; col++) {
-                ChessPosition ttargetPosition = new ChessPosition(row, col);
-                ChessPiece targetPiece = board.getPiece(ttargetPosition);
-                if (targetPiece == null) {
-                    continue;
-                }
-                if (targetPiece.getTeamColor() == teamColor) {
-                    Collection<ChessMove> allyMoves = validMoves(ttargetPosition);
-                    if (!allyMoves.isEmpty()) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        PositionStatus status = status(teamColor);
+        return status.inCheck && status.moves.isEmpty();
     }
 
     /**
@@ -199,39 +545,25 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        ChessPosition kingPosition = kingPosition(teamColor);
-        if (isInCheck(teamColor)) {
-            return false;
-        }
-        Collection<ChessMove> kingMoves = validMoves(kingPosition);
-        if (!kingMoves.isEmpty()) {
-            return false;
-        }
-        for(int row = 1; row < 9; row++) {
-            for (int col = 1; col < 9; col++) {
-                ChessPosition targetPosition = new ChessPosition(row, col);
-                ChessPiece targetPiece = board.getPiece(targetPosition);
-                if (targetPiece == null) {
-                    continue;
-                }
-                if (targetPiece.getTeamColor() == teamColor) {
-                    Collection<ChessMove> allyMoves = validMoves(targetPosition);
-                    if (!allyMoves.isEmpty()) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        PositionStatus status = status(teamColor);
+        return !status.inCheck && status.moves.isEmpty();
     }
 
     /**
-     * Sets this game's chessboard with a given board
+     * Sets this game's chessboard with a given board, forgetting the moves played
+     * on the old one and restarting the move clocks. Each team keeps the right to
+     * castle with every rook still on its home square beside a king on its own.
      *
      * @param board the new board to use
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        castlingRights = Castling.infer(board.getBitboard());
+        enPassantSquare = Bitboard.EMPTY;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        history().clear();
+        invalidateStatus();
     }
 
     /**
@@ -243,17 +575,66 @@ public class ChessGame {
         return board;
     }
 
+    /**
+     * Creates a game from a position in Forsyth-Edwards Notation. The piece
+     * placement field is required; the side to move defaults to white when it is
+     * missing, the castling rights are inferred from the board when they are, and
+     * the move clocks default to the start of a game.
+     *
+     * @param fen the position, e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"
+     * @return a new game in that position
+     * @throws IllegalArgumentException if the string is not a valid FEN position
+     */
+    public static ChessGame fromFen(String fen) {
+        return Fen.parse(fen);
+    }
+
+    /**
+     * @return the current position in Forsyth-Edwards Notation
+     */
+    public String toFen() {
+        return Fen.write(this);
+    }
+
+    /**
+     * Finds the legal move written in Standard Algebraic Notation, e.g. "Nbd7",
+     * "exd6", "O-O" or "e8=Q+"
+     *
+     * @return the move packed as by {@link PackedMove}, ready to {@link #play(int)}
+     * @throws IllegalArgumentException if no legal move matches, or more than one does
+     */
+    public int parseSan(String san) {
+        return San.parse(this, san);
+    }
+
+    /**
+     * Gets a 64-bit Zobrist key for the current position, covering the pieces, whose
+     * turn it is, the castling rights and any possible en passant capture. Equal
+     * positions always share a key, and different ones almost never do, so it is
+     * suitable for keying caches.
+     *
+     * @return the key of the current position
+     */
+    public long positionKey() {
+        long key = board.getBitboard().key();
+        if (teamTurn == TeamColor.BLACK) {
+            key ^= Zobrist.side();
+        }
+        return key ^ Zobrist.castling(getCastlingRights()) ^ Zobrist.enPassant(enPassantSquare);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
         ChessGame chessGame = (ChessGame) o;
-        return Objects.equals(board, chessGame.board) && teamTurn == chessGame.teamTurn;
+        return Objects.equals(board, chessGame.board) && teamTurn == chessGame.teamTurn
+                && getCastlingRights() == chessGame.getCastlingRights() && enPassantSquare == chessGame.enPassantSquare;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(board, teamTurn);
+        return Long.hashCode(positionKey());
     }
 }
\ No newline at end of file
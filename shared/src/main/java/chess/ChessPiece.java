@@ -5,9 +5,9 @@ import chess.piececalculators.RookMovesCalculator;
 import chess.piececalculators.KnightMovesCalculator;
 import chess.piececalculators.KingMovesCalculator;
 import chess.piececalculators.PawnMovesCalculator;
+import chess.piececalculators.PieceMovesCalculator;
 
 import java.util.Collection;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -18,6 +18,26 @@ import java.util.Objects;
  */
 public class ChessPiece {
 
+    // Indexed by PieceType ordinal
+    private static final PieceMovesCalculator[] CALCULATORS = {
+            new KingMovesCalculator(),
+            new QueenMovesCalculator(),
+            new BishopMovesCalculator(),
+            new KnightMovesCalculator(),
+            new RookMovesCalculator(),
+            new PawnMovesCalculator()
+    };
+
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[color.ordinal() * 6 + type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
 
@@ -26,6 +46,14 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Gets the shared instance for a piece; pieces are immutable, so one of each
+     * color and type is enough
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return PIECES[pieceColor.ordinal() * 6 + type.ordinal()];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -61,29 +89,21 @@ public class ChessPiece {
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
         ChessPiece piece = board.getPiece(myPosition);
-        if (piece.getPieceType() == PieceType.BISHOP) {
-            return new BishopMovesCalculator().calculateMoves(board, myPosition);
-        }
-        else if (piece.getPieceType() == PieceType.QUEEN) {
-            return new QueenMovesCalculator().calculateMoves(board, myPosition);
-        }
-        else if (piece.getPieceType() == PieceType.ROOK) {
-            return new RookMovesCalculator().calculateMoves(board, myPosition);
-        }
-        else if (piece.getPieceType() == PieceType.KNIGHT) {
-            return new KnightMovesCalculator().calculateMoves(board, myPosition);
-        }
-        else if (piece.getPieceType() == PieceType.KING) {
-            return new KingMovesCalculator().calculateMoves(board, myPosition);
-        }
-        else if (piece.getPieceType() == PieceType.PAWN) {
-            return new PawnMovesCalculator().calculateMoves(board, myPosition);
-        }
-        return List.of();
+        return calculator(piece.getPieceType()).calculateMoves(board, myPosition);
+    }
+
+    /**
+     * @return the shared calculator for the moves of the given piece type
+     */
+    public static PieceMovesCalculator calculator(PieceType type) {
+        return CALCULATORS[type.ordinal()];
     }
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
@@ -0,0 +1,208 @@
+package chess;
+
+/**
+ * Reads and writes Forsyth-Edwards Notation in a single pass over the characters,
+ * without splitting the string or using regular expressions.
+ */
+final class Fen {
+
+    private static final char[] PIECE_CHARS = {'K', 'Q', 'B', 'N', 'R', 'P', 'k', 'q', 'b', 'n', 'r', 'p'};
+    // In the order of the Castling bits
+    private static final char[] CASTLING_CHARS = {'K', 'Q', 'k', 'q'};
+
+    private Fen() {
+    }
+
+    static ChessGame parse(String fen) {
+        ChessBoard board = new ChessBoard();
+        int length = fen.length();
+        int i = skipSpaces(fen, 0);
+
+        int row = 8;
+        int col = 1;
+        for (; i < length; i++) {
+            char c = fen.charAt(i);
+            if (c == ' ') {
+                break;
+            }
+            if (c == '/') {
+                if (col != 9) {
+                    throw error(fen, "row " + row + " does not have 8 squares");
+                }
+                row--;
+                col = 1;
+                if (row < 1) {
+                    throw error(fen, "more than 8 rows");
+                }
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                int piece = pieceIndex(c);
+                if (piece == Bitboard.EMPTY) {
+                    throw error(fen, "unknown piece '" + c + "'");
+                }
+                if (col > 8) {
+                    throw error(fen, "row " + row + " has more than 8 squares");
+                }
+                board.addPiece(ChessPosition.of(row, col), Bitboard.piece(piece));
+                col++;
+            }
+            if (col > 9) {
+                throw error(fen, "row " + row + " has more than 8 squares");
+            }
+        }
+        if (row != 1 || col != 9) {
+            throw error(fen, "the board does not have 64 squares");
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+
+        i = skipSpaces(fen, i);
+        if (i < length) {
+            char side = fen.charAt(i++);
+            if (side == 'b') {
+                game.setTeamTurn(ChessGame.TeamColor.BLACK);
+            } else if (side != 'w') {
+                throw error(fen, "side to move must be 'w' or 'b'");
+            }
+        }
+
+        i = skipSpaces(fen, i);
+        if (i < length) {
+            int rights = Castling.NONE;
+            if (fen.charAt(i) == '-') {
+                i++;
+            } else {
+                for (; i < length && fen.charAt(i) != ' '; i++) {
+                    rights |= castlingRight(fen, fen.charAt(i));
+                }
+            }
+            game.setCastlingRights(rights & Castling.infer(board.getBitboard()));
+        }
+
+        i = skipSpaces(fen, i);
+        if (i < length) {
+            char file = fen.charAt(i++);
+            if (file != '-') {
+                char rank = i < length ? fen.charAt(i++) : ' ';
+                int expected = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? '6' : '3';
+                if (file < 'a' || file > 'h' || rank != expected) {
+                    throw error(fen, "invalid en passant square");
+                }
+                game.setEnPassantSquare(Bitboard.square(rank - '0', file - 'a' + 1));
+            }
+        }
+
+        i = skipSpaces(fen, i);
+        int start = i;
+        i = skipNumber(fen, i);
+        if (i > start) {
+            game.setHalfmoveClock(number(fen, start, i));
+        }
+        i = skipSpaces(fen, i);
+        start = i;
+        i = skipNumber(fen, i);
+        if (i > start) {
+            game.setFullmoveNumber(Math.max(1, number(fen, start, i)));
+        }
+        if (skipSpaces(fen, i) < length) {
+            throw error(fen, "unexpected text after the move clocks");
+        }
+        return game;
+    }
+
+    static String write(ChessGame game) {
+        Bitboard bitboard = game.getBoard().getBitboard();
+        StringBuilder fen = new StringBuilder(90);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                int piece = bitboard.pieceAt(Bitboard.square(row, col));
+                if (piece == Bitboard.EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                fen.append(PIECE_CHARS[piece]);
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w" : " b");
+        fen.append(' ');
+        int rights = game.getCastlingRights();
+        if (rights == Castling.NONE) {
+            fen.append('-');
+        }
+        for (int i = 0; i < CASTLING_CHARS.length; i++) {
+            if ((rights & (1 << i)) != 0) {
+                fen.append(CASTLING_CHARS[i]);
+            }
+        }
+
+        int enPassant = game.getEnPassantSquare();
+        if (enPassant == Bitboard.EMPTY) {
+            fen.append(" -");
+        } else {
+            fen.append(' ').append((char) ('a' + Bitboard.column(enPassant) - 1)).append(Bitboard.row(enPassant));
+        }
+        fen.append(' ').append(game.getHalfmoveClock()).append(' ').append(game.getFullmoveNumber());
+        return fen.toString();
+    }
+
+    private static int skipSpaces(String fen, int i) {
+        while (i < fen.length() && fen.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipNumber(String fen, int i) {
+        while (i < fen.length() && fen.charAt(i) >= '0' && fen.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int number(String fen, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + fen.charAt(i) - '0';
+            if (value > 100000) {
+                throw error(fen, "move number is too large");
+            }
+        }
+        return value;
+    }
+
+    private static int castlingRight(String fen, char c) {
+        for (int i = 0; i < CASTLING_CHARS.length; i++) {
+            if (CASTLING_CHARS[i] == c) {
+                return 1 << i;
+            }
+        }
+        throw error(fen, "unknown castling right '" + c + "'");
+    }
+
+    private static int pieceIndex(char c) {
+        for (int piece = 0; piece < PIECE_CHARS.length; piece++) {
+            if (PIECE_CHARS[piece] == c) {
+                return piece;
+            }
+        }
+        return Bitboard.EMPTY;
+    }
+
+    private static IllegalArgumentException error(String fen, String reason) {
+        return new IllegalArgumentException("Invalid FEN \"" + fen + "\": " + reason);
+    }
+}
@@ -0,0 +1,138 @@
+package chess;
+
+import chess.piececalculators.AttackTables;
+import chess.piececalculators.KingMovesCalculator;
+import chess.piececalculators.PawnMovesCalculator;
+
+/**
+ * Generates strictly legal moves from a bitboard without making and unmaking them.
+ * <p>
+ * The checking pieces and the pinned pieces are found once per call. A double
+ * check leaves only king moves; a single check restricts every other piece to
+ * capturing the checker or blocking its ray; a pinned piece may only move along
+ * the line through its king and the pinning piece. King steps are tested against
+ * the board with the king lifted off, so it cannot retreat along a checking ray.
+ * Castling and en passant need more than the pins and checkers to decide, so
+ * their calculators check those moves on their own.
+ */
+public final class MoveGenerator {
+
+    private static final int QUEEN = ChessPiece.PieceType.QUEEN.ordinal();
+    private static final int BISHOP = ChessPiece.PieceType.BISHOP.ordinal();
+    private static final int KNIGHT = ChessPiece.PieceType.KNIGHT.ordinal();
+    private static final int ROOK = ChessPiece.PieceType.ROOK.ordinal();
+    private static final int PAWN = ChessPiece.PieceType.PAWN.ordinal();
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Adds every legal move for a team's pieces on the given squares
+     *
+     * @param bitboard  the position to generate moves for
+     * @param us        the team whose pieces are moving
+     * @param castling  the {@link Castling} rights of both teams
+     * @param enPassant the square a pawn may capture onto en passant, or
+     *                  {@link Bitboard#EMPTY}
+     * @param from      a mask of the start squares to generate moves from; pass -1 for
+     *                  every piece the team has
+     * @param moves     the list to add the moves to
+     */
+    public static void legalMoves(Bitboard bitboard, ChessGame.TeamColor us, int castling, int enPassant,
+                                  long from, MoveList moves) {
+        ChessGame.TeamColor them = us.opponent();
+        int base = us.ordinal() * 6;
+        long ours = bitboard.color(us);
+        long theirs = bitboard.color(them);
+        long occupied = bitboard.occupied();
+        from &= ours;
+
+        int kingSquare = bitboard.kingSquare(us);
+        long checkers = 0L;
+        long pinned = 0L;
+        if (kingSquare != Bitboard.EMPTY) {
+            checkers = bitboard.attackersTo(kingSquare, them);
+            pinned = pinnedPieces(bitboard, kingSquare, them, ours, occupied);
+
+            if ((from & (1L << kingSquare)) != 0) {
+                long kingless = occupied & ~(1L << kingSquare);
+                long targets = AttackTables.kingAttacks(kingSquare) & ~ours;
+                while (targets != 0) {
+                    int to = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    if (!bitboard.isAttacked(to, them, kingless)) {
+                        moves.add(PackedMove.encode(kingSquare, to));
+                    }
+                }
+                if (checkers == 0 && (castling & Castling.rights(us)) != 0) {
+                    KingMovesCalculator.addCastlingMoves(bitboard, us, castling, moves);
+                }
+            }
+            if (Long.bitCount(checkers) > 1) {
+                return;
+            }
+        }
+
+        long checkMask = -1L;
+        if (checkers != 0) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            checkMask = AttackTables.between(kingSquare, checker) | checkers;
+        }
+
+        if (enPassant != Bitboard.EMPTY) {
+            PawnMovesCalculator.addEnPassantMoves(bitboard, us, enPassant, from, moves);
+        }
+
+        long pieces = kingSquare == Bitboard.EMPTY ? from : from & ~(1L << kingSquare);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            long allowed = checkMask;
+            if ((pinned & (1L << square)) != 0) {
+                allowed &= AttackTables.line(kingSquare, square);
+            }
+
+            int type = bitboard.pieceAt(square) - base;
+            if (type == PAWN) {
+                PawnMovesCalculator.addPawnMoves(square, us, occupied, theirs, allowed, moves);
+                continue;
+            }
+            long targets;
+            if (type == KNIGHT) {
+                targets = AttackTables.knightAttacks(square);
+            } else if (type == BISHOP) {
+                targets = AttackTables.bishopAttacks(square, occupied);
+            } else if (type == ROOK) {
+                targets = AttackTables.rookAttacks(square, occupied);
+            } else if (type == QUEEN) {
+                targets = AttackTables.queenAttacks(square, occupied);
+            } else {
+                targets = AttackTables.kingAttacks(square);
+            }
+            targets &= ~ours & allowed;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                moves.add(PackedMove.encode(square, to));
+            }
+        }
+    }
+
+    private static long pinnedPieces(Bitboard bitboard, int kingSquare, ChessGame.TeamColor them,
+                                     long ours, long occupied) {
+        int base = them.ordinal() * 6;
+        long queens = bitboard.pieces(base + QUEEN);
+        long snipers = (AttackTables.rookAttacks(kingSquare, 0L) & (bitboard.pieces(base + ROOK) | queens))
+                | (AttackTables.bishopAttacks(kingSquare, 0L) & (bitboard.pieces(base + BISHOP) | queens));
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = AttackTables.between(kingSquare, sniper) & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & ours) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+}
@@ -0,0 +1,219 @@
+package chess;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The moves played in a game, each packed into a long together with what is
+ * needed to take it back: the piece it captured and the state the game was in
+ * before it. Undone moves stay above the top of the stack until a new move is
+ * played, so they can be redone. The position key before each move is kept
+ * alongside, for spotting repeated positions.
+ * <p>
+ * Bits 0-31 hold the {@link PackedMove}, bits 32-35 the captured piece index plus
+ * one (zero for none), bit 36 whether the game was over, bits 37-40 the
+ * {@link Castling} rights, bits 41-47 the en passant square plus one, and bits
+ * 48-63 the halfmove clock.
+ * <p>
+ * In JSON only the moves played and undone are written, not the spare room in
+ * the arrays, since games are stored and sent with every move.
+ */
+@JsonAdapter(MoveHistory.Adapter.class)
+final class MoveHistory {
+
+    private static final int CAPTURED_SHIFT = 32;
+    private static final long CAPTURED_MASK = 0xF;
+    private static final long GAME_OVER = 1L << 36;
+    private static final int CASTLING_SHIFT = 37;
+    private static final int EN_PASSANT_SHIFT = 41;
+    private static final long EN_PASSANT_MASK = 0x7F;
+    private static final int HALFMOVE_SHIFT = 48;
+    private static final int HALFMOVE_MAX = 0xFFFF;
+
+    private long[] entries;
+    private long[] keys;
+    private int size;
+    private int limit;
+
+    MoveHistory() {
+        entries = new long[16];
+        keys = new long[16];
+    }
+
+    MoveHistory(MoveHistory other) {
+        entries = Arrays.copyOf(other.entries, other.entries.length);
+        keys = Arrays.copyOf(other.keys, other.keys.length);
+        size = other.size;
+        limit = other.limit;
+    }
+
+    static long entry(int move, int captured, boolean gameOver, int castling, int enPassant, int halfmoveClock) {
+        long entry = (move & 0xFFFFFFFFL) | ((long) (captured + 1) << CAPTURED_SHIFT)
+                | ((long) castling << CASTLING_SHIFT) | ((long) (enPassant + 1) << EN_PASSANT_SHIFT)
+                | ((long) Math.min(halfmoveClock, HALFMOVE_MAX) << HALFMOVE_SHIFT);
+        return gameOver ? entry | GAME_OVER : entry;
+    }
+
+    static int move(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * @return the piece index the move captured, or {@link Bitboard#EMPTY}
+     */
+    static int captured(long entry) {
+        return (int) ((entry >>> CAPTURED_SHIFT) & CAPTURED_MASK) - 1;
+    }
+
+    static boolean gameOver(long entry) {
+        return (entry & GAME_OVER) != 0;
+    }
+
+    static int castling(long entry) {
+        return (int) (entry >>> CASTLING_SHIFT) & Castling.ALL;
+    }
+
+    /**
+     * @return the en passant square before the move, or {@link Bitboard#EMPTY}
+     */
+    static int enPassant(long entry) {
+        return (int) ((entry >>> EN_PASSANT_SHIFT) & EN_PASSANT_MASK) - 1;
+    }
+
+    static int halfmoveClock(long entry) {
+        return (int) (entry >>> HALFMOVE_SHIFT);
+    }
+
+    /**
+     * Records a newly played move, discarding any moves that could have been redone
+     *
+     * @param entry the packed move and prior state
+     * @param key   the position key before the move
+     */
+    void push(long entry, long key) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        entries[size] = entry;
+        keys[size] = key;
+        limit = ++size;
+    }
+
+    long undo() {
+        return entries[--size];
+    }
+
+    long redo() {
+        return entries[size++];
+    }
+
+    boolean canUndo() {
+        return size > 0;
+    }
+
+    boolean canRedo() {
+        return size < limit;
+    }
+
+    /**
+     * @return the number of moves played, not counting undone ones
+     */
+    int size() {
+        return size;
+    }
+
+    long get(int index) {
+        return entries[index];
+    }
+
+    /**
+     * @return the position key from before the move at the index
+     */
+    long key(int index) {
+        return keys[index];
+    }
+
+    void clear() {
+        size = 0;
+        limit = 0;
+    }
+
+    static final class Adapter extends TypeAdapter<MoveHistory> {
+
+        @Override
+        public void write(JsonWriter out, MoveHistory history) throws IOException {
+            if (history == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("entries");
+            writeLongs(out, history.entries, history.limit);
+            out.name("keys");
+            writeLongs(out, history.keys, history.limit);
+            out.name("size").value(history.size);
+            out.endObject();
+        }
+
+        @Override
+        public MoveHistory read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            long[] entries = new long[0];
+            long[] keys = new long[0];
+            int size = 0;
+            int limit = -1;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "entries" -> entries = readLongs(in);
+                    case "keys" -> keys = readLongs(in);
+                    case "size" -> size = in.nextInt();
+                    // Written by versions that stored the arrays whole, spare room and all
+                    case "limit" -> limit = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+
+            MoveHistory history = new MoveHistory();
+            history.limit = limit < 0 ? Math.min(entries.length, keys.length) : limit;
+            history.size = Math.min(size, history.limit);
+            int capacity = Math.max(history.entries.length, history.limit);
+            history.entries = Arrays.copyOf(entries, capacity);
+            history.keys = Arrays.copyOf(keys, capacity);
+            return history;
+        }
+
+        private static void writeLongs(JsonWriter out, long[] values, int count) throws IOException {
+            out.beginArray();
+            for (int i = 0; i < count; i++) {
+                out.value(values[i]);
+            }
+            out.endArray();
+        }
+
+        private static long[] readLongs(JsonReader in) throws IOException {
+            long[] values = new long[16];
+            int count = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                values[count++] = in.nextLong();
+            }
+            in.endArray();
+            return Arrays.copyOf(values, count);
+        }
+    }
+}
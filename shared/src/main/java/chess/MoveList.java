@@ -0,0 +1,80 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * A growable buffer of {@link PackedMove} ints. Clearing it keeps the backing
+ * array, so one list can be filled over and over without allocating.
+ */
+public final class MoveList {
+
+    // No legal chess position has more than 218 moves
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveList(int capacity) {
+        this.moves = new int[capacity];
+    }
+
+    public void add(int move) {
+        if (size == moves.length) {
+            int[] grown = new int[moves.length * 2];
+            System.arraycopy(moves, 0, grown, 0, size);
+            moves = grown;
+        }
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Finds a move by its squares and promotion piece, ignoring flags
+     *
+     * @param move the move to find, as encoded by {@link PackedMove#of(ChessMove)}
+     * @return the stored move including its flags, or {@link PackedMove#NONE}
+     */
+    public int find(int move) {
+        for (int i = 0; i < size; i++) {
+            if (PackedMove.withoutFlags(moves[i]) == move) {
+                return moves[i];
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    /**
+     * @return a new collection of ChessMoves for every move in the list
+     */
+    public Collection<ChessMove> toChessMoves() {
+        Collection<ChessMove> chessMoves = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            chessMoves.add(PackedMove.toChessMove(moves[i]));
+        }
+        return chessMoves;
+    }
+}
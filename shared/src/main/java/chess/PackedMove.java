@@ -0,0 +1,88 @@
+package chess;
+
+/**
+ * Encodes a move into a single int so move generation does not allocate.
+ * <p>
+ * Bits 0-5 hold the start square, bits 6-11 the end square, and bits 12-14 the
+ * promotion piece (its {@link ChessPiece.PieceType} ordinal plus one, or zero for
+ * none). Bits 15 and up are flags describing special moves.
+ */
+public final class PackedMove {
+
+    public static final int NONE = 0;
+
+    /**
+     * Flag for a king moving two squares to castle, taking the rook with it
+     */
+    public static final int CASTLE = 1;
+    /**
+     * Flag for a pawn capturing en passant, removing the pawn beside its end square
+     */
+    public static final int EN_PASSANT = 1 << 1;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int TO_SHIFT = 6;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PROMOTION_MASK = 0x7;
+    private static final int FLAG_SHIFT = 15;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static int encode(int from, int to) {
+        return from | (to << TO_SHIFT);
+    }
+
+    public static int encode(int from, int to, ChessPiece.PieceType promotion) {
+        int move = encode(from, to);
+        if (promotion != null) {
+            move |= (promotion.ordinal() + 1) << PROMOTION_SHIFT;
+        }
+        return move;
+    }
+
+    /**
+     * @return the move encoded from a ChessMove, without any flags
+     */
+    public static int of(ChessMove move) {
+        return encode(Bitboard.square(move.getStartPosition()), Bitboard.square(move.getEndPosition()),
+                move.getPromotionPiece());
+    }
+
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * @return the piece a pawn promotes to, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int code = (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+        return code == 0 ? null : TYPES[code - 1];
+    }
+
+    public static int flags(int move) {
+        return move >>> FLAG_SHIFT;
+    }
+
+    public static int withFlags(int move, int flags) {
+        return move | (flags << FLAG_SHIFT);
+    }
+
+    /**
+     * @return the move without its flags, as it would be encoded from a ChessMove
+     */
+    public static int withoutFlags(int move) {
+        return move & ((1 << FLAG_SHIFT) - 1);
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(Bitboard.position(from(move)), Bitboard.position(to(move)), promotion(move));
+    }
+}
@@ -0,0 +1,96 @@
+package chess;
+
+import java.io.PrintStream;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth ("perft"). The
+ * counts for well-known positions are published, so they pin down move generation
+ * exactly, and the time taken measures its throughput.
+ * <p>
+ * Run with a depth and an optional FEN, for example
+ * {@code Perft 5 "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"}, to print the
+ * count below each root move followed by the total and nodes per second.
+ */
+public final class Perft {
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Perft() {
+    }
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        String fen = args.length > 1 ? args[1] : START_FEN;
+        ChessGame game = ChessGame.fromFen(fen);
+
+        long start = System.nanoTime();
+        long nodes = divide(game, depth, System.out);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%nNodes: %d%nTime: %.3f s%nNodes/second: %.0f%n", nodes, seconds, nodes / seconds);
+    }
+
+    /**
+     * @param game  the position to count from; the moves are played on it and
+     *              taken back, so it is left in the same position
+     * @param depth how many plies to search
+     * @return the number of legal move sequences of exactly that length
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = legalMoves(game);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.play(moves.get(i));
+            nodes += perft(game, depth - 1);
+            game.undo();
+        }
+        return nodes;
+    }
+
+    /**
+     * Like {@link #perft(ChessGame, int)}, but also prints the count below each root
+     * move so a mismatch can be narrowed down one move at a time
+     */
+    public static long divide(ChessGame game, int depth, PrintStream out) {
+        MoveList moves = legalMoves(game);
+        long total = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            game.play(move);
+            long nodes = perft(game, depth - 1);
+            game.undo();
+            out.println(moveString(PackedMove.toChessMove(move)) + ": " + nodes);
+            total += nodes;
+        }
+        return total;
+    }
+
+    private static MoveList legalMoves(ChessGame game) {
+        MoveList moves = new MoveList();
+        game.generateMoves(moves);
+        return moves;
+    }
+
+    private static String moveString(ChessMove move) {
+        String text = squareName(move.getStartPosition()) + squareName(move.getEndPosition());
+        if (move.getPromotionPiece() != null) {
+            text += switch (move.getPromotionPiece()) {
+                case QUEEN -> "q";
+                case ROOK -> "r";
+                case BISHOP -> "b";
+                case KNIGHT -> "n";
+                default -> "";
+            };
+        }
+        return text;
+    }
+
+    private static String squareName(ChessPosition position) {
+        return "" + (char) ('a' + position.getColumn() - 1) + position.getRow();
+    }
+}
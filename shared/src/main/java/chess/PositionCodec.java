@@ -0,0 +1,106 @@
+package chess;
+
+/**
+ * Encodes a game's position into a compact byte array and back.
+ * <p>
+ * The layout is one version byte, one flags byte (bit 0 set when black is to
+ * move, bit 1 when the game is over, bits 2-5 the {@link Castling} rights), one
+ * byte holding the en passant square plus one, the 64-bit occupancy mask in
+ * big-endian order, and then a 4-bit piece index for every occupied square in
+ * square order, two to a byte. A full starting position takes 27 bytes.
+ */
+public final class PositionCodec {
+
+    public static final byte VERSION = 2;
+
+    private static final int HEADER_LENGTH = 11;
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int GAME_OVER = 1 << 1;
+    private static final int CASTLING_SHIFT = 2;
+
+    private PositionCodec() {
+    }
+
+    public static byte[] encode(ChessGame game) {
+        Bitboard bitboard = game.getBoard().getBitboard();
+        long occupied = bitboard.occupied();
+        int count = Long.bitCount(occupied);
+        byte[] bytes = new byte[HEADER_LENGTH + (count + 1) / 2];
+
+        bytes[0] = VERSION;
+        int flags = 0;
+        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK) {
+            flags |= BLACK_TO_MOVE;
+        }
+        if (game.isGameOver()) {
+            flags |= GAME_OVER;
+        }
+        flags |= game.getCastlingRights() << CASTLING_SHIFT;
+        bytes[1] = (byte) flags;
+        bytes[2] = (byte) (game.getEnPassantSquare() + 1);
+        for (int i = 0; i < 8; i++) {
+            bytes[3 + i] = (byte) (occupied >>> (56 - 8 * i));
+        }
+
+        int nibble = 0;
+        long squares = occupied;
+        while (squares != 0) {
+            int square = Long.numberOfTrailingZeros(squares);
+            squares &= squares - 1;
+            int piece = bitboard.pieceAt(square);
+            int index = HEADER_LENGTH + nibble / 2;
+            bytes[index] |= (byte) ((nibble & 1) == 0 ? piece << 4 : piece);
+            nibble++;
+        }
+        return bytes;
+    }
+
+    /**
+     * @param bytes a position written by {@link #encode(ChessGame)}
+     * @return a new game in that position
+     * @throws IllegalArgumentException if the bytes are not a valid encoding
+     */
+    public static ChessGame decode(byte[] bytes) {
+        if (bytes.length < HEADER_LENGTH) {
+            throw new IllegalArgumentException("Encoded position is too short");
+        }
+        if (bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported position encoding version " + bytes[0]);
+        }
+        int flags = bytes[1];
+        int enPassant = bytes[2] - 1;
+        if (enPassant < Bitboard.EMPTY || enPassant > 63) {
+            throw new IllegalArgumentException("Encoded position has an invalid en passant square");
+        }
+        long occupied = 0L;
+        for (int i = 0; i < 8; i++) {
+            occupied = (occupied << 8) | (bytes[3 + i] & 0xFF);
+        }
+        if (bytes.length != HEADER_LENGTH + (Long.bitCount(occupied) + 1) / 2) {
+            throw new IllegalArgumentException("Encoded position has the wrong length");
+        }
+
+        ChessBoard board = new ChessBoard();
+        int nibble = 0;
+        long squares = occupied;
+        while (squares != 0) {
+            int square = Long.numberOfTrailingZeros(squares);
+            squares &= squares - 1;
+            int packed = bytes[HEADER_LENGTH + nibble / 2];
+            int piece = ((nibble & 1) == 0 ? packed >>> 4 : packed) & 0xF;
+            if (piece >= Bitboard.PIECE_KINDS) {
+                throw new IllegalArgumentException("Encoded position has an unknown piece code " + piece);
+            }
+            board.addPiece(Bitboard.position(square), Bitboard.piece(piece));
+            nibble++;
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn((flags & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        game.setGameOver((flags & GAME_OVER) != 0);
+        game.setCastlingRights(((flags >>> CASTLING_SHIFT) & Castling.ALL) & Castling.infer(board.getBitboard()));
+        game.setEnPassantSquare(enPassant);
+        return game;
+    }
+}
@@ -0,0 +1,121 @@
+package chess;
+
+/**
+ * Reads moves in Standard Algebraic Notation, as found in PGN files, by matching
+ * the text against the legal moves of the position rather than working out the
+ * move on its own. Check marks and annotations are ignored, castling may be
+ * written with letter O or digit zero, and the '=' before a promotion piece is
+ * optional.
+ */
+final class San {
+
+    private San() {
+    }
+
+    /**
+     * @return the matching legal move, with its flags
+     * @throws IllegalArgumentException if no legal move matches, or more than one does
+     */
+    static int parse(ChessGame game, String san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        String text = san.substring(0, end);
+        MoveList moves = new MoveList();
+        game.generateMoves(moves);
+        Bitboard bitboard = game.getBoard().getBitboard();
+
+        if (text.equals("O-O") || text.equals("0-0") || text.equals("O-O-O") || text.equals("0-0-0")) {
+            boolean kingside = text.length() == 3;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if ((PackedMove.flags(move) & PackedMove.CASTLE) != 0
+                        && (PackedMove.to(move) > PackedMove.from(move)) == kingside) {
+                    return move;
+                }
+            }
+            throw error(san, "castling is not legal");
+        }
+
+        int i = 0;
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        if (i < text.length() && "KQRBN".indexOf(text.charAt(i)) >= 0) {
+            type = pieceType(text.charAt(i));
+            i++;
+        }
+        ChessPiece.PieceType promotion = null;
+        int last = text.length();
+        if (last > 0 && "QRBN".indexOf(text.charAt(last - 1)) >= 0 && type == ChessPiece.PieceType.PAWN) {
+            promotion = pieceType(text.charAt(last - 1));
+            last--;
+            if (last > 0 && text.charAt(last - 1) == '=') {
+                last--;
+            }
+        }
+        if (last - i < 2) {
+            throw error(san, "no destination square");
+        }
+        int to = square(text.charAt(last - 2), text.charAt(last - 1));
+        if (to == Bitboard.EMPTY) {
+            throw error(san, "bad destination square");
+        }
+
+        // Whatever is left between the piece and the destination narrows the start square
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int j = i; j < last - 2; j++) {
+            char c = text.charAt(j);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != '-' && c != ':') {
+                throw error(san, "unexpected '" + c + "'");
+            }
+        }
+
+        int piece = Bitboard.pieceIndex(game.getTeamTurn(), type);
+        int found = PackedMove.NONE;
+        for (int j = 0; j < moves.size(); j++) {
+            int move = moves.get(j);
+            int from = PackedMove.from(move);
+            if (PackedMove.to(move) != to || bitboard.pieceAt(from) != piece
+                    || PackedMove.promotion(move) != promotion
+                    || (PackedMove.flags(move) & PackedMove.CASTLE) != 0
+                    || (fromFile >= 0 && (from & 7) != fromFile)
+                    || (fromRank >= 0 && (from >>> 3) != fromRank)) {
+                continue;
+            }
+            if (found != PackedMove.NONE) {
+                throw error(san, "ambiguous");
+            }
+            found = move;
+        }
+        if (found == PackedMove.NONE) {
+            throw error(san, "not a legal move");
+        }
+        return found;
+    }
+
+    private static ChessPiece.PieceType pieceType(char c) {
+        return switch (c) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            default -> ChessPiece.PieceType.KNIGHT;
+        };
+    }
+
+    private static int square(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            return Bitboard.EMPTY;
+        }
+        return (rank - '1') * 8 + (file - 'a');
+    }
+
+    private static IllegalArgumentException error(String san, String reason) {
+        return new IllegalArgumentException("Invalid move \"" + san + "\": " + reason);
+    }
+}
@@ -0,0 +1,562 @@
+package chess;
+
+import chess.piececalculators.AttackTables;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * One endgame table: the exact outcome of every position with a given set of
+ * pieces, found by retrograde analysis.
+ * <p>
+ * A position is indexed by the team to move followed by six bits per piece
+ * square: the white king, the black king, then the other pieces in the order of
+ * the table's name, so three pieces take 2^19 entries and four take 2^25. Each
+ * entry keeps one code, 0 for a draw (or an impossible placement) and otherwise
+ * one more than the plies to mate, packed into as few bits as the longest mate
+ * needs. Castling, en passant and the fifty-move rule are not considered.
+ * <p>
+ * Generation works backwards from the end. Every legal position first counts its
+ * moves that stay in the table and settles the ones that leave it, by capture or
+ * promotion, with the smaller tables in {@link Tablebases}. Then, a ply at a
+ * time, each position settled at distance n un-makes moves to its predecessors: a
+ * loss makes every predecessor a win at n + 1, and a win takes one move off each
+ * predecessor's count, leaving it lost once no move escapes. Whatever is never
+ * settled is a draw.
+ */
+final class Tablebase {
+
+    /**
+     * "CHSTBL" followed by the format version, 1
+     */
+    static final long MAGIC = 0x4348_5354_424C_0001L;
+
+    private static final int WHITE_KING = Bitboard.pieceIndex(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
+    private static final int BLACK_KING = Bitboard.pieceIndex(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final String PIECE_LETTERS = "QRBNP";
+
+    private static final int VALID = 1;
+    private static final int RESOLVED = 1 << 1;
+    private static final int DRAWN = 1 << 2;
+    private static final int CAN_DRAW = 1 << 3;
+    private static final int HAS_WIN = 1 << 4;
+    private static final int PROPAGATED = 1 << 5;
+
+    private final String name;
+    private final int[] pieces;
+    private final long material;
+    private final int bits;
+    private final long[] codes;
+    private final TablebaseResult[] results;
+
+    private Tablebase(String name, int bits, long[] codes) {
+        this.name = name;
+        this.pieces = pieces(name);
+        this.bits = bits;
+        this.codes = codes;
+        long signature = (1L << (WHITE_KING * 4)) + (1L << (BLACK_KING * 4));
+        for (int piece : pieces) {
+            signature += 1L << (piece * 4);
+        }
+        this.material = signature;
+        this.results = new TablebaseResult[1 << bits];
+        results[0] = TablebaseResult.DRAW;
+        for (int code = 1; code < results.length; code++) {
+            results[code] = new TablebaseResult(false, code - 1);
+        }
+    }
+
+    /**
+     * @return the name, such as "KRK" or "KQKR": a K, the white pieces, a K, then
+     * the black pieces
+     */
+    String name() {
+        return name;
+    }
+
+    /**
+     * @return the {@link Bitboard#material()} signature of every position in the table
+     */
+    long material() {
+        return material;
+    }
+
+    int entries() {
+        return 2 << (6 * (pieces.length + 2));
+    }
+
+    int bitsPerEntry() {
+        return bits;
+    }
+
+    /**
+     * @return the most plies to mate of any position the team to move wins
+     */
+    int longestWin() {
+        int longest = 0;
+        for (int index = 0; index < entries(); index++) {
+            int code = code(index);
+            if (code % 2 == 0 && code > longest) {
+                longest = code;
+            }
+        }
+        return Math.max(0, longest - 1);
+    }
+
+    /**
+     * @param flipped whether to read the board with the colors swapped and the
+     *                ranks reversed, for a table built with the other team strong
+     */
+    TablebaseResult probe(Bitboard bitboard, ChessGame.TeamColor toMove, boolean flipped) {
+        int flip = flipped ? 56 : 0;
+        int index = flipped ? toMove.opponent().ordinal() : toMove.ordinal();
+        index = (index << 6) | (bitboard.kingSquare(flipped ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE) ^ flip);
+        index = (index << 6) | (bitboard.kingSquare(flipped ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK) ^ flip);
+        for (int piece : pieces) {
+            long squares = bitboard.pieces(flipped ? (piece + 6) % 12 : piece);
+            index = (index << 6) | (Long.numberOfTrailingZeros(squares) ^ flip);
+        }
+        return results[code(index)];
+    }
+
+    private int code(int index) {
+        long bit = (long) index * bits;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = codes[word] >>> shift;
+        if (shift + bits > 64) {
+            value |= codes[word + 1] << (64 - shift);
+        }
+        return (int) (value & ((1L << bits) - 1));
+    }
+
+    /**
+     * @return the piece indices of the pieces other than the kings in a table name,
+     * white first
+     * @throws IllegalArgumentException if the name is not two kings and at most
+     *                                  {@link Tablebases#MAX_PIECES} pieces in all
+     */
+    static int[] pieces(String name) {
+        int second = name.indexOf('K', 1);
+        if (!name.startsWith("K") || second < 0 || name.length() > Tablebases.MAX_PIECES) {
+            throw new IllegalArgumentException("Invalid tablebase \"" + name + "\"");
+        }
+        int[] pieces = new int[name.length() - 2];
+        int next = 0;
+        for (int i = 1; i < name.length(); i++) {
+            if (i == second) {
+                continue;
+            }
+            if (PIECE_LETTERS.indexOf(name.charAt(i)) < 0) {
+                throw new IllegalArgumentException("Invalid tablebase \"" + name + "\"");
+            }
+            ChessGame.TeamColor color = i < second ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            pieces[next++] = Bitboard.pieceIndex(color, pieceType(name.charAt(i)));
+        }
+        for (int i = 0; i < pieces.length; i++) {
+            for (int j = i + 1; j < pieces.length; j++) {
+                if (pieces[i] == pieces[j]) {
+                    throw new IllegalArgumentException("Tablebases with two identical pieces are not supported: " + name);
+                }
+            }
+        }
+        return pieces;
+    }
+
+    static ChessPiece.PieceType pieceType(char letter) {
+        return switch (letter) {
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            default -> ChessPiece.PieceType.PAWN;
+        };
+    }
+
+    /**
+     * Builds the table for a set of pieces
+     *
+     * @param tablebases the tables every capture and promotion from this one leads
+     *                   to, apart from those drawn for lack of material
+     * @throws IllegalStateException if one of those tables is missing
+     */
+    static Tablebase generate(String name, Tablebases tablebases) {
+        int[] pieces = pieces(name);
+        int count = pieces.length + 2;
+        int entries = 2 << (6 * count);
+        byte[] flags = new byte[entries];
+        byte[] moveCounts = new byte[entries];
+        short[] distances = new short[entries];
+        Buckets buckets = new Buckets();
+
+        Bitboard board = new Bitboard();
+        MoveList moves = new MoveList();
+        int[] squares = new int[count];
+        for (int index = 0; index < entries; index++) {
+            ChessGame.TeamColor toMove = COLORS[decode(index, squares)];
+            if (!place(board, pieces, squares)) {
+                continue;
+            }
+            if (!board.isAttacked(board.kingSquare(toMove.opponent()), toMove)) {
+                flags[index] = VALID;
+                moves.clear();
+                MoveGenerator.legalMoves(board, toMove, Castling.NONE, Bitboard.EMPTY, -1L, moves);
+                settleExits(board, toMove, moves, tablebases, index, flags, moveCounts, distances, buckets);
+            }
+            lift(board, pieces, squares);
+        }
+
+        for (int ply = 0; ply < buckets.size(); ply++) {
+            Buckets.IntList bucket = buckets.get(ply);
+            for (int i = 0; i < bucket.size(); i++) {
+                int index = bucket.get(i);
+                int state = flags[index];
+                if ((state & RESOLVED) == 0) {
+                    // A win through a capture or promotion that nothing shorter beat
+                    flags[index] |= RESOLVED;
+                    distances[index] = (short) ply;
+                } else if ((state & (DRAWN | PROPAGATED)) != 0 || distances[index] != ply) {
+                    continue;
+                }
+                flags[index] |= PROPAGATED;
+                propagate(index, ply, board, pieces, squares, flags, moveCounts, distances, buckets);
+            }
+        }
+
+        int longest = 0;
+        for (int index = 0; index < entries; index++) {
+            if ((flags[index] & (RESOLVED | DRAWN)) == RESOLVED) {
+                longest = Math.max(longest, distances[index] + 1);
+            }
+        }
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(longest));
+        long[] codes = new long[(int) (((long) entries * bits + 63) >>> 6) + 1];
+        for (int index = 0; index < entries; index++) {
+            if ((flags[index] & (RESOLVED | DRAWN)) == RESOLVED) {
+                long code = distances[index] + 1;
+                long bit = (long) index * bits;
+                int word = (int) (bit >>> 6);
+                int shift = (int) (bit & 63);
+                codes[word] |= code << shift;
+                if (shift + bits > 64) {
+                    codes[word + 1] |= code >>> (64 - shift);
+                }
+            }
+        }
+        return new Tablebase(name, bits, codes);
+    }
+
+    /**
+     * Counts a new position's moves that stay in the table, and settles the rest
+     * from the smaller tables. A position with nothing left to wait for is settled
+     * straight away.
+     */
+    private static void settleExits(Bitboard board, ChessGame.TeamColor toMove, MoveList moves,
+                                    Tablebases tablebases, int index, byte[] flags, byte[] moveCounts,
+                                    short[] distances, Buckets buckets) {
+        if (moves.isEmpty()) {
+            if (board.isAttacked(board.kingSquare(toMove), toMove.opponent())) {
+                flags[index] |= RESOLVED;
+                buckets.add(0, index);
+            } else {
+                flags[index] |= RESOLVED | DRAWN;
+            }
+            return;
+        }
+
+        int inside = 0;
+        int win = Integer.MAX_VALUE;
+        int loss = 0;
+        boolean canDraw = false;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+            int captured = board.pieceAt(to);
+            ChessPiece.PieceType promotion = PackedMove.promotion(move);
+            if (captured == Bitboard.EMPTY && promotion == null) {
+                inside++;
+                continue;
+            }
+
+            int piece = board.pieceAt(from);
+            int placed = promotion == null ? piece : Bitboard.pieceIndex(toMove, promotion);
+            board.remove(from, piece);
+            if (captured != Bitboard.EMPTY) {
+                board.remove(to, captured);
+            }
+            board.put(to, placed);
+            TablebaseResult result = tablebases.probe(board, toMove.opponent());
+            board.remove(to, placed);
+            if (captured != Bitboard.EMPTY) {
+                board.put(to, captured);
+            }
+            board.put(from, piece);
+
+            if (result == null) {
+                throw new IllegalStateException("A smaller tablebase is missing");
+            } else if (result.draw()) {
+                canDraw = true;
+            } else if (result.isLoss()) {
+                win = Math.min(win, result.pliesToMate() + 1);
+            } else {
+                loss = Math.max(loss, result.pliesToMate() + 1);
+            }
+        }
+
+        moveCounts[index] = (byte) inside;
+        distances[index] = (short) loss;
+        if (canDraw) {
+            flags[index] |= CAN_DRAW;
+        }
+        if (win != Integer.MAX_VALUE) {
+            flags[index] |= HAS_WIN;
+            buckets.add(win, index);
+        } else if (inside == 0) {
+            if (canDraw) {
+                flags[index] |= RESOLVED | DRAWN;
+            } else {
+                flags[index] |= RESOLVED;
+                buckets.add(loss, index);
+            }
+        }
+    }
+
+    /**
+     * Un-makes every move that could have led to a position settled at the given
+     * distance, and passes what that means on to each predecessor
+     */
+    private static void propagate(int index, int ply, Bitboard board, int[] pieces, int[] squares,
+                                  byte[] flags, byte[] moveCounts, short[] distances, Buckets buckets) {
+        ChessGame.TeamColor toMove = COLORS[decode(index, squares)];
+        ChessGame.TeamColor mover = toMove.opponent();
+        boolean lost = ply % 2 == 0;
+        place(board, pieces, squares);
+        long occupied = board.occupied();
+
+        for (int slot = 0; slot < squares.length; slot++) {
+            int piece = slot == 0 ? WHITE_KING : slot == 1 ? BLACK_KING : pieces[slot - 2];
+            if (Bitboard.colorOf(piece) != mover) {
+                continue;
+            }
+            int square = squares[slot];
+            long origins = unmoves(piece, square, occupied);
+            while (origins != 0) {
+                squares[slot] = Long.numberOfTrailingZeros(origins);
+                origins &= origins - 1;
+                int previous = index(mover.ordinal(), squares);
+                int state = flags[previous];
+                if ((state & VALID) == 0 || (state & RESOLVED) != 0) {
+                    continue;
+                }
+                if (lost) {
+                    flags[previous] |= RESOLVED;
+                    distances[previous] = (short) (ply + 1);
+                    buckets.add(ply + 1, previous);
+                    continue;
+                }
+                distances[previous] = (short) Math.max(distances[previous], ply + 1);
+                if (--moveCounts[previous] == 0 && (state & HAS_WIN) == 0) {
+                    if ((state & CAN_DRAW) != 0) {
+                        flags[previous] |= RESOLVED | DRAWN;
+                    } else {
+                        flags[previous] |= RESOLVED;
+                        buckets.add(distances[previous], previous);
+                    }
+                }
+            }
+            squares[slot] = square;
+        }
+        lift(board, pieces, squares);
+    }
+
+    /**
+     * @return the empty squares a piece could have moved from to reach its square
+     * without capturing
+     */
+    private static long unmoves(int piece, int square, long occupied) {
+        long empty = ~occupied;
+        return switch (Bitboard.typeOf(piece)) {
+            case KING -> AttackTables.kingAttacks(square) & empty;
+            case QUEEN -> AttackTables.queenAttacks(square, occupied) & empty;
+            case ROOK -> AttackTables.rookAttacks(square, occupied) & empty;
+            case BISHOP -> AttackTables.bishopAttacks(square, occupied) & empty;
+            case KNIGHT -> AttackTables.knightAttacks(square) & empty;
+            case PAWN -> pawnUnmoves(Bitboard.colorOf(piece), square, occupied);
+        };
+    }
+
+    private static long pawnUnmoves(ChessGame.TeamColor color, int square, long occupied) {
+        int rank = square >>> 3;
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        if (white ? rank <= 1 : rank >= 6) {
+            return 0L;
+        }
+        long single = 1L << (white ? square - 8 : square + 8);
+        if ((single & occupied) != 0) {
+            return 0L;
+        }
+        if (rank == (white ? 3 : 4)) {
+            long twice = 1L << (white ? square - 16 : square + 16);
+            if ((twice & occupied) == 0) {
+                return single | twice;
+            }
+        }
+        return single;
+    }
+
+    private static int index(int toMove, int[] squares) {
+        int index = toMove;
+        for (int square : squares) {
+            index = (index << 6) | square;
+        }
+        return index;
+    }
+
+    /**
+     * Splits an index into its piece squares
+     *
+     * @return the ordinal of the team to move
+     */
+    private static int decode(int index, int[] squares) {
+        for (int slot = squares.length - 1; slot >= 0; slot--) {
+            squares[slot] = index & 63;
+            index >>>= 6;
+        }
+        return index;
+    }
+
+    /**
+     * Puts the pieces on an empty board, unless the placement is impossible
+     * whoever is to move: two pieces on one square, a pawn on the first or last
+     * rank, or the kings side by side
+     *
+     * @return whether the pieces were placed
+     */
+    private static boolean place(Bitboard board, int[] pieces, int[] squares) {
+        long used = 0L;
+        for (int square : squares) {
+            if ((used & (1L << square)) != 0) {
+                return false;
+            }
+            used |= 1L << square;
+        }
+        if ((AttackTables.kingAttacks(squares[0]) & (1L << squares[1])) != 0) {
+            return false;
+        }
+        for (int i = 0; i < pieces.length; i++) {
+            int rank = squares[i + 2] >>> 3;
+            if (Bitboard.typeOf(pieces[i]) == ChessPiece.PieceType.PAWN && (rank == 0 || rank == 7)) {
+                return false;
+            }
+        }
+        board.put(squares[0], WHITE_KING);
+        board.put(squares[1], BLACK_KING);
+        for (int i = 0; i < pieces.length; i++) {
+            board.put(squares[i + 2], pieces[i]);
+        }
+        return true;
+    }
+
+    private static void lift(Bitboard board, int[] pieces, int[] squares) {
+        board.remove(squares[0], WHITE_KING);
+        board.remove(squares[1], BLACK_KING);
+        for (int i = 0; i < pieces.length; i++) {
+            board.remove(squares[i + 2], pieces[i]);
+        }
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeLong(MAGIC);
+        out.writeUTF(name);
+        out.writeByte(bits);
+        out.writeInt(codes.length);
+        for (long word : codes) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * @throws IOException if the stream does not hold a table
+     */
+    static Tablebase read(DataInputStream in) throws IOException {
+        if (in.readLong() != MAGIC) {
+            throw new IOException("Not a tablebase");
+        }
+        String name = in.readUTF();
+        int bits = in.readByte();
+        int words = in.readInt();
+        try {
+            int entries = 2 << (6 * (pieces(name).length + 2));
+            if (bits < 1 || bits > 15 || words != (int) (((long) entries * bits + 63) >>> 6) + 1) {
+                throw new IOException("Corrupt tablebase " + name);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        long[] codes = new long[words];
+        for (int i = 0; i < words; i++) {
+            codes[i] = in.readLong();
+        }
+        return new Tablebase(name, bits, codes);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + bits + " bits per position)";
+    }
+
+    /**
+     * Positions waiting to be passed on, one growable list per distance to mate
+     */
+    private static final class Buckets {
+
+        private IntList[] lists = new IntList[64];
+        private int size;
+
+        void add(int ply, int index) {
+            if (ply >= lists.length) {
+                lists = Arrays.copyOf(lists, Math.max(lists.length * 2, ply + 1));
+            }
+            if (lists[ply] == null) {
+                lists[ply] = new IntList();
+            }
+            lists[ply].add(index);
+            size = Math.max(size, ply + 1);
+        }
+
+        IntList get(int ply) {
+            return lists[ply] == null ? IntList.EMPTY : lists[ply];
+        }
+
+        int size() {
+            return size;
+        }
+
+        private static final class IntList {
+
+            static final IntList EMPTY = new IntList();
+
+            private int[] values = new int[16];
+            private int size;
+
+            void add(int value) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                values[size++] = value;
+            }
+
+            int get(int i) {
+                return values[i];
+            }
+
+            int size() {
+                return size;
+            }
+        }
+    }
+}
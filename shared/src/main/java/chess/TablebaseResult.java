@@ -0,0 +1,31 @@
+package chess;
+
+/**
+ * The exact outcome of an endgame position read from a {@link Tablebases} table,
+ * from the point of view of the team to move.
+ *
+ * @param draw        whether the position is a draw with best play
+ * @param pliesToMate if not a draw, how many plies it takes to mate with best
+ *                    play by both sides: odd when the team to move mates, even when
+ *                    it is mated, and 0 when it is checkmated already
+ */
+public record TablebaseResult(boolean draw, int pliesToMate) {
+
+    public static final TablebaseResult DRAW = new TablebaseResult(true, 0);
+
+    public boolean isWin() {
+        return !draw && pliesToMate % 2 == 1;
+    }
+
+    public boolean isLoss() {
+        return !draw && pliesToMate % 2 == 0;
+    }
+
+    /**
+     * @return the number of moves of the winning team until mate, counting the
+     * mating move
+     */
+    public int movesToMate() {
+        return (pliesToMate + 1) / 2;
+    }
+}
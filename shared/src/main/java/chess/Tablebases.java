@@ -0,0 +1,218 @@
+package chess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Endgame tables for positions with few pieces, giving the exact outcome and
+ * distance to mate of any position they cover with a single lookup.
+ * <p>
+ * Tables are named by their pieces, a K and the white pieces then a K and the
+ * black pieces, strongest first, such as "KQK", "KPK" or "KRKN". A table also
+ * answers for the same pieces with the colors swapped, so "KQK" covers a lone
+ * white king against a black queen too. Positions with only kings, or kings and a
+ * single bishop or knight, are draws without any table.
+ * <p>
+ * Generate or load every table before probing; once built, a set of tables is
+ * only read and can be shared by any number of threads. Run as
+ * {@code Tablebases <directory> [name...]} to generate tables, by default KQK, KRK
+ * and KPK, and write them to a directory as {@code <name>.tb} files.
+ */
+public final class Tablebases {
+
+    public static final int MAX_PIECES = 4;
+    public static final List<String> DEFAULT_TABLES = List.of("KQK", "KRK", "KPK");
+
+    private static final String PIECE_ORDER = "QRBNP";
+    private static final String FILE_SUFFIX = ".tb";
+    private static final long MINOR_PIECES = signature(ChessPiece.PieceType.BISHOP) | signature(ChessPiece.PieceType.KNIGHT);
+    private static final long KINGS = signature(ChessPiece.PieceType.KING);
+    private static final long ONE_KING_EACH = (1L << (Bitboard.pieceIndex(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING) * 4))
+            | (1L << (Bitboard.pieceIndex(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING) * 4));
+
+    private final List<Tablebase> tables = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: Tablebases <directory> [name...]");
+            return;
+        }
+        List<String> names = args.length > 1 ? List.of(args).subList(1, args.length) : DEFAULT_TABLES;
+        Tablebases tablebases = new Tablebases();
+        for (String name : names) {
+            long start = System.nanoTime();
+            tablebases.generate(name);
+            System.out.printf("%s: %.1f s%n", name, (System.nanoTime() - start) / 1e9);
+        }
+        tablebases.save(Path.of(args[0]));
+        for (Tablebase table : tablebases.tables) {
+            System.out.printf("%s: longest mate %d plies%n", table, table.longestWin());
+        }
+    }
+
+    /**
+     * Reads every {@code .tb} file in a directory
+     *
+     * @throws IOException if a file cannot be read or is not a table
+     */
+    public static Tablebases load(Path directory) throws IOException {
+        Tablebases tablebases = new Tablebases();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                try (InputStream stream = Files.newInputStream(file);
+                     DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+                    Tablebase table = Tablebase.read(in);
+                    if (tablebases.find(table.name()) == null) {
+                        tablebases.tables.add(table);
+                    }
+                }
+            }
+        }
+        return tablebases;
+    }
+
+    /**
+     * Writes every table to a directory, creating it if needed
+     */
+    public void save(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Tablebase table : tables) {
+            try (OutputStream file = Files.newOutputStream(directory.resolve(table.name() + FILE_SUFFIX));
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                table.write(out);
+            }
+        }
+    }
+
+    /**
+     * Builds a table, first building any smaller ones its captures and promotions
+     * lead to that are not here yet. Does nothing if the table, or the one with the
+     * colors swapped, is already here.
+     *
+     * @throws IllegalArgumentException if the name is not a supported table
+     */
+    public void generate(String name) {
+        Tablebase.pieces(name);
+        String white = sorted(name.substring(1, Math.max(1, name.indexOf('K', 1))));
+        String black = sorted(name.substring(Math.max(1, name.indexOf('K', 1) + 1)));
+        String canonical = "K" + white + "K" + black;
+        if (covers(white, black)) {
+            return;
+        }
+
+        for (int i = 0; i < white.length(); i++) {
+            generateExit(remove(white, i), black);
+            if (white.charAt(i) == 'P') {
+                for (char promotion : "QRBN".toCharArray()) {
+                    generateExit(remove(white, i) + promotion, black);
+                }
+            }
+        }
+        for (int i = 0; i < black.length(); i++) {
+            generateExit(white, remove(black, i));
+            if (black.charAt(i) == 'P') {
+                for (char promotion : "QRBN".toCharArray()) {
+                    generateExit(white, remove(black, i) + promotion);
+                }
+            }
+        }
+        tables.add(Tablebase.generate(canonical, this));
+    }
+
+    /**
+     * @return the names of the tables here
+     */
+    public List<String> names() {
+        List<String> names = new ArrayList<>();
+        for (Tablebase table : tables) {
+            names.add(table.name());
+        }
+        return names;
+    }
+
+    /**
+     * Looks a position up, ignoring castling rights, en passant and the fifty-move
+     * rule
+     *
+     * @param toMove the team to move
+     * @return the outcome for the team to move, or null if no table covers the
+     * position
+     */
+    public TablebaseResult probe(Bitboard bitboard, ChessGame.TeamColor toMove) {
+        long material = bitboard.material();
+        if (Long.bitCount(bitboard.occupied()) > MAX_PIECES || (material & KINGS) != ONE_KING_EACH) {
+            return null;
+        }
+        long flipped = ((material & 0xFFFFFFL) << 24) | (material >>> 24);
+        for (int i = 0; i < tables.size(); i++) {
+            Tablebase table = tables.get(i);
+            if (table.material() == material) {
+                return table.probe(bitboard, toMove, false);
+            }
+            if (table.material() == flipped) {
+                return table.probe(bitboard, toMove, true);
+            }
+        }
+        long others = material & ~KINGS;
+        if (others == 0 || (Long.bitCount(bitboard.occupied()) == 3 && (others & ~MINOR_PIECES) == 0)) {
+            return TablebaseResult.DRAW;
+        }
+        return null;
+    }
+
+    Tablebase find(String name) {
+        for (Tablebase table : tables) {
+            if (table.name().equals(name)) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    private void generateExit(String white, String black) {
+        String pieces = white + black;
+        if (pieces.isEmpty() || (pieces.length() == 1 && "BN".contains(pieces))) {
+            return;
+        }
+        if (white.isEmpty()) {
+            generate("K" + black + "K");
+        } else {
+            generate("K" + white + "K" + black);
+        }
+    }
+
+    private boolean covers(String white, String black) {
+        return find("K" + white + "K" + black) != null || find("K" + black + "K" + white) != null;
+    }
+
+    private static String remove(String pieces, int i) {
+        return pieces.substring(0, i) + pieces.substring(i + 1);
+    }
+
+    private static String sorted(String pieces) {
+        char[] letters = pieces.toCharArray();
+        for (int i = 1; i < letters.length; i++) {
+            for (int j = i; j > 0 && PIECE_ORDER.indexOf(letters[j]) < PIECE_ORDER.indexOf(letters[j - 1]); j--) {
+                char swap = letters[j];
+                letters[j] = letters[j - 1];
+                letters[j - 1] = swap;
+            }
+        }
+        return new String(letters);
+    }
+
+    private static long signature(ChessPiece.PieceType type) {
+        return (0xFL << (Bitboard.pieceIndex(ChessGame.TeamColor.WHITE, type) * 4))
+                | (0xFL << (Bitboard.pieceIndex(ChessGame.TeamColor.BLACK, type) * 4));
+    }
+}
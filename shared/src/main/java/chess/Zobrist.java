@@ -0,0 +1,83 @@
+package chess;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the key for
+ * every piece on its square, the side key when black is to move, and the keys for
+ * the castling rights and en passant file, so a move updates it by XORing out and
+ * in only what it changes.
+ * <p>
+ * The keys come from a fixed-seed SplitMix64 sequence, so a position hashes to
+ * the same value in every JVM and stored keys stay valid across restarts.
+ */
+public final class Zobrist {
+
+    private static final long[][] PIECE_SQUARE = new long[Bitboard.PIECE_KINDS][64];
+    private static final long SIDE;
+    private static final long[] CASTLING = new long[Castling.ALL + 1];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int piece = 0; piece < Bitboard.PIECE_KINDS; piece++) {
+            for (int square = 0; square < 64; square++) {
+                seed += 0x9E3779B97F4A7C15L;
+                PIECE_SQUARE[piece][square] = mix(seed);
+            }
+        }
+        seed += 0x9E3779B97F4A7C15L;
+        SIDE = mix(seed);
+
+        // One key per right; a set of rights hashes to the XOR of its members
+        long[] rights = new long[4];
+        for (int i = 0; i < rights.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            rights[i] = mix(seed);
+        }
+        for (int mask = 0; mask < CASTLING.length; mask++) {
+            for (int i = 0; i < rights.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    CASTLING[mask] ^= rights[i];
+                }
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            seed += 0x9E3779B97F4A7C15L;
+            EN_PASSANT_FILE[file] = mix(seed);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(int piece, int square) {
+        return PIECE_SQUARE[piece][square];
+    }
+
+    /**
+     * @return the key XORed in when black is the side to move
+     */
+    public static long side() {
+        return SIDE;
+    }
+
+    /**
+     * @return the key XORed in for a set of {@link Castling} rights
+     */
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * @return the key XORed in for a possible en passant capture onto the square,
+     * or 0 for {@link Bitboard#EMPTY}
+     */
+    public static long enPassant(int square) {
+        return square == Bitboard.EMPTY ? 0L : EN_PASSANT_FILE[square & 7];
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,250 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.PackedMove;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an {@link OpeningBook} file from games in PGN.
+ * <p>
+ * The first moves of every game are replayed, and each (position, move) pair
+ * seen gains weight by how the game went for the side that played it: two for a
+ * win, one for a draw or an unknown result, none for a loss. Pairs left with no
+ * weight are not written. Comments, variations and annotations are skipped, and
+ * a game with a move that cannot be read is kept only up to that move.
+ * <p>
+ * Run as {@code BookBuilder <book file> <pgn file>... [--plies N]}.
+ */
+public final class BookBuilder {
+
+    public static final int DEFAULT_PLIES = 20;
+
+    private record Entry(long key, int move) {
+    }
+
+    private final int maxPlies;
+    private final Map<Entry, Integer> weights = new HashMap<>();
+    private int games;
+    private int skippedMoves;
+
+    /**
+     * @param maxPlies how many plies from the start of each game to add
+     */
+    public BookBuilder(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Path> pgns = new ArrayList<>();
+        Path output = null;
+        int plies = DEFAULT_PLIES;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--plies") && i + 1 < args.length) {
+                plies = Integer.parseInt(args[++i]);
+            } else if (output == null) {
+                output = Path.of(args[i]);
+            } else {
+                pgns.add(Path.of(args[i]));
+            }
+        }
+        if (output == null || pgns.isEmpty()) {
+            System.out.println("Usage: BookBuilder <book file> <pgn file>... [--plies N]");
+            return;
+        }
+
+        BookBuilder builder = new BookBuilder(plies);
+        for (Path pgn : pgns) {
+            try (Reader reader = Files.newBufferedReader(pgn, StandardCharsets.ISO_8859_1)) {
+                builder.addGames(reader);
+            }
+        }
+        int entries = builder.write(output);
+        System.out.printf("Games: %d%nUnreadable moves: %d%nEntries: %d%n",
+                builder.games, builder.skippedMoves, entries);
+    }
+
+    /**
+     * Reads every game from a PGN stream
+     *
+     * @return the number of games read
+     */
+    public int addGames(Reader reader) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        int before = games;
+        List<String> moves = new ArrayList<>();
+        String fen = null;
+        String result = "*";
+        boolean inMoves = false;
+        int depth = 0;
+        boolean inComment = false;
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!inComment && depth == 0 && line.startsWith("[")) {
+                if (inMoves) {
+                    addGame(fen, moves, result);
+                    moves.clear();
+                    fen = null;
+                    result = "*";
+                    inMoves = false;
+                }
+                String value = tagValue(line);
+                if (line.startsWith("[FEN ")) {
+                    fen = value;
+                } else if (line.startsWith("[Result ")) {
+                    result = value;
+                }
+                continue;
+            }
+
+            StringBuilder token = new StringBuilder();
+            for (int i = 0; i <= line.length(); i++) {
+                char c = i < line.length() ? line.charAt(i) : ' ';
+                if (inComment) {
+                    inComment = c != '}';
+                    continue;
+                }
+                if (c == '{' || c == ';' || c == '(' || c == ')' || Character.isWhitespace(c)) {
+                    if (depth == 0 && !token.isEmpty()) {
+                        String text = token.toString();
+                        if (isResult(text)) {
+                            addGame(fen, moves, result.equals("*") ? text : result);
+                            moves.clear();
+                            fen = null;
+                            result = "*";
+                            inMoves = false;
+                        } else {
+                            String san = moveText(text);
+                            if (!san.isEmpty()) {
+                                moves.add(san);
+                                inMoves = true;
+                            }
+                        }
+                    }
+                    token.setLength(0);
+                    if (c == '{') {
+                        inComment = true;
+                    } else if (c == ';') {
+                        break;
+                    } else if (c == '(') {
+                        depth++;
+                    } else if (c == ')') {
+                        depth = Math.max(0, depth - 1);
+                    }
+                } else {
+                    token.append(c);
+                }
+            }
+        }
+        if (inMoves) {
+            addGame(fen, moves, result);
+        }
+        return games - before;
+    }
+
+    /**
+     * Sorts the entries and writes them as a book file
+     *
+     * @return the number of entries written
+     */
+    public int write(Path path) throws IOException {
+        List<Map.Entry<Entry, Integer>> entries = new ArrayList<>();
+        for (Map.Entry<Entry, Integer> entry : weights.entrySet()) {
+            if (entry.getValue() > 0) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.<Map.Entry<Entry, Integer>>comparingLong(entry -> entry.getKey().key())
+                .thenComparing(Map.Entry::getValue, Comparator.reverseOrder())
+                .thenComparingInt(entry -> entry.getKey().move()));
+
+        try (OutputStream file = Files.newOutputStream(path);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeLong(OpeningBook.MAGIC);
+            for (Map.Entry<Entry, Integer> entry : entries) {
+                out.writeLong(entry.getKey().key());
+                out.writeInt(entry.getKey().move());
+                out.writeInt(entry.getValue());
+            }
+        }
+        return entries.size();
+    }
+
+    private void addGame(String fen, List<String> moves, String result) {
+        games++;
+        ChessGame game;
+        try {
+            game = fen == null ? new ChessGame() : ChessGame.fromFen(fen);
+        } catch (IllegalArgumentException e) {
+            skippedMoves += moves.size();
+            return;
+        }
+        int plies = Math.min(moves.size(), maxPlies);
+        for (int ply = 0; ply < plies; ply++) {
+            int move;
+            try {
+                move = game.parseSan(moves.get(ply));
+            } catch (IllegalArgumentException e) {
+                skippedMoves++;
+                return;
+            }
+            int weight = weight(result, game.getTeamTurn());
+            Entry entry = new Entry(game.positionKey(), PackedMove.withoutFlags(move));
+            weights.merge(entry, weight, (a, b) -> (int) Math.min(Integer.MAX_VALUE, (long) a + b));
+            game.play(move);
+        }
+    }
+
+    private static int weight(String result, ChessGame.TeamColor mover) {
+        return switch (result) {
+            case "1-0" -> mover == ChessGame.TeamColor.WHITE ? 2 : 0;
+            case "0-1" -> mover == ChessGame.TeamColor.BLACK ? 2 : 0;
+            default -> 1;
+        };
+    }
+
+    private static boolean isResult(String token) {
+        return token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*");
+    }
+
+    /**
+     * @return the move in a movetext token with any move number in front removed,
+     * or an empty string for a token that is only a move number or an annotation
+     */
+    private static String moveText(String token) {
+        if (token.startsWith("$")) {
+            return "";
+        }
+        int start = 0;
+        while (start < token.length() && Character.isDigit(token.charAt(start))) {
+            start++;
+        }
+        if (start < token.length() && token.charAt(start) == '.') {
+            while (start < token.length() && token.charAt(start) == '.') {
+                start++;
+            }
+            return token.substring(start);
+        }
+        return token;
+    }
+
+    private static String tagValue(String line) {
+        int open = line.indexOf('"');
+        int close = line.lastIndexOf('"');
+        return open >= 0 && close > open ? line.substring(open + 1, close) : "";
+    }
+}
@@ -0,0 +1,284 @@
+package chess.engine;
+
+import chess.Bitboard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PieceSquareTables;
+import chess.piececalculators.AttackTables;
+
+/**
+ * Scores a position in centipawns.
+ * <p>
+ * Every term is a packed middlegame and endgame pair (see
+ * {@link PieceSquareTables}), summed white minus black and then tapered by the
+ * game phase. Material and piece placement come ready-summed from the
+ * {@link Bitboard}, which updates them with every move. On top of that come pawn
+ * structure (doubled, isolated and passed pawns), which depends only on the
+ * pawns and so can be kept in a {@link PawnCache}; how near each king is to the
+ * passed pawns; and, in the middlegame, king safety: the pawns sheltering the
+ * king and the pieces bearing on the squares around it.
+ */
+public final class Evaluator {
+
+    private static final int[] VALUES = new int[ChessPiece.PieceType.values().length];
+
+    private static final int QUEEN = ChessPiece.PieceType.QUEEN.ordinal();
+    private static final int BISHOP = ChessPiece.PieceType.BISHOP.ordinal();
+    private static final int KNIGHT = ChessPiece.PieceType.KNIGHT.ordinal();
+    private static final int ROOK = ChessPiece.PieceType.ROOK.ordinal();
+    private static final int PAWN = ChessPiece.PieceType.PAWN.ordinal();
+
+    private static final int DOUBLED = PieceSquareTables.pack(-10, -25);
+    private static final int ISOLATED = PieceSquareTables.pack(-10, -15);
+    // By rank counted from the pawn's own side, 0 to 7
+    private static final int[] PASSED = {
+            0, PieceSquareTables.pack(5, 10), PieceSquareTables.pack(10, 20), PieceSquareTables.pack(15, 35),
+            PieceSquareTables.pack(25, 60), PieceSquareTables.pack(40, 100), PieceSquareTables.pack(60, 150), 0,
+    };
+
+    // Per square the enemy king is further than ours from a passed pawn's path
+    private static final int ESCORT = PieceSquareTables.pack(0, 5);
+
+    private static final int SHIELD_NEAR = PieceSquareTables.pack(15, 0);
+    private static final int SHIELD_FAR = PieceSquareTables.pack(8, 0);
+    // Weight of each piece type attacking the king's surroundings, in PieceType order
+    private static final int[] ATTACK_WEIGHTS = {0, 80, 20, 20, 40, 0};
+    // Percentage of the attack weight that counts, by number of attackers
+    private static final int[] ATTACK_SCALE = {0, 0, 50, 75, 88, 94, 97, 99};
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    private static final long[][] PASSED_MASKS = new long[2][64];
+    private static final long[][] SHIELD_NEAR_MASKS = new long[2][64];
+    private static final long[][] SHIELD_FAR_MASKS = new long[2][64];
+
+    static {
+        VALUES[ChessPiece.PieceType.KING.ordinal()] = 0;
+        VALUES[ChessPiece.PieceType.QUEEN.ordinal()] = 900;
+        VALUES[ChessPiece.PieceType.ROOK.ordinal()] = 500;
+        VALUES[ChessPiece.PieceType.BISHOP.ordinal()] = 330;
+        VALUES[ChessPiece.PieceType.KNIGHT.ordinal()] = 320;
+        VALUES[ChessPiece.PieceType.PAWN.ordinal()] = 100;
+
+        for (int file = 0; file < 8; file++) {
+            FILES[file] = 0x0101010101010101L << file;
+        }
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? FILES[file - 1] : 0L) | (file < 7 ? FILES[file + 1] : 0L);
+        }
+        for (int square = 0; square < 64; square++) {
+            int row = square >>> 3;
+            int file = square & 7;
+            long span = FILES[file] | ADJACENT_FILES[file];
+            long above = row == 7 ? 0L : -1L << ((row + 1) * 8);
+            long below = row == 0 ? 0L : -1L >>> ((8 - row) * 8);
+            PASSED_MASKS[0][square] = span & above;
+            PASSED_MASKS[1][square] = span & below;
+            SHIELD_NEAR_MASKS[0][square] = row < 7 ? span & (0xFFL << ((row + 1) * 8)) : 0L;
+            SHIELD_NEAR_MASKS[1][square] = row > 0 ? span & (0xFFL << ((row - 1) * 8)) : 0L;
+            SHIELD_FAR_MASKS[0][square] = row < 6 ? span & (0xFFL << ((row + 2) * 8)) : 0L;
+            SHIELD_FAR_MASKS[1][square] = row > 1 ? span & (0xFFL << ((row - 2) * 8)) : 0L;
+        }
+    }
+
+    private Evaluator() {
+    }
+
+    /**
+     * @return the material value of a piece type, with the king counted as 0
+     */
+    public static int value(ChessPiece.PieceType type) {
+        return VALUES[type.ordinal()];
+    }
+
+    /**
+     * @return the score from the point of view of the team to move
+     */
+    public static int evaluate(ChessGame game) {
+        return evaluate(game, null);
+    }
+
+    /**
+     * Same as {@link #evaluate(ChessGame)}, but looks the pawn structure up in a
+     * cache before scoring it
+     *
+     * @param cache the calling thread's cache, or null to score pawns every time
+     */
+    public static int evaluate(ChessGame game, PawnCache cache) {
+        int score = whiteScore(game, cache);
+        return game.getTeamTurn() == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+
+    /**
+     * @return the score from white's point of view, positive when white is better
+     */
+    public static int whiteScore(ChessGame game) {
+        return whiteScore(game, null);
+    }
+
+    /**
+     * Same as {@link #whiteScore(ChessGame)}, but looks the pawn structure up in a
+     * cache before scoring it
+     *
+     * @param cache the calling thread's cache, or null to score pawns every time
+     */
+    public static int whiteScore(ChessGame game, PawnCache cache) {
+        Bitboard bitboard = game.getBoard().getBitboard();
+        int pawnScore;
+        long passed;
+        if (cache == null) {
+            passed = passedPawns(bitboard);
+            pawnScore = pawnStructure(bitboard, passed);
+        } else {
+            long key = bitboard.pawnKey();
+            int slot = cache.slot(key);
+            if (!cache.holds(slot, key)) {
+                passed = passedPawns(bitboard);
+                cache.store(slot, key, pawnStructure(bitboard, passed), passed);
+            }
+            pawnScore = cache.score(slot);
+            passed = cache.passed(slot);
+        }
+        int score = bitboard.psqt()
+                + pawnScore
+                + passerEscort(bitboard, passed)
+                + kingSafety(bitboard, ChessGame.TeamColor.WHITE)
+                - kingSafety(bitboard, ChessGame.TeamColor.BLACK);
+        return PieceSquareTables.taper(score, bitboard.phase());
+    }
+
+    /**
+     * @return the packed pawn structure score, white minus black
+     */
+    static int pawnStructure(Bitboard bitboard) {
+        return pawnStructure(bitboard, passedPawns(bitboard));
+    }
+
+    /**
+     * @return the squares of every passed pawn of either color
+     */
+    static long passedPawns(Bitboard bitboard) {
+        long white = bitboard.pieces(PAWN);
+        long black = bitboard.pieces(PAWN + 6);
+        return passedPawns(white, black, 0) | passedPawns(black, white, 1);
+    }
+
+    private static long passedPawns(long ours, long theirs, int color) {
+        long passed = 0L;
+        long pawns = ours;
+        while (pawns != 0) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            if ((PASSED_MASKS[color][square] & theirs) == 0) {
+                passed |= 1L << square;
+            }
+        }
+        return passed;
+    }
+
+    private static int pawnStructure(Bitboard bitboard, long passed) {
+        long white = bitboard.pieces(PAWN);
+        long black = bitboard.pieces(PAWN + 6);
+        return pawnStructure(white, passed & white, 0) - pawnStructure(black, passed & black, 1);
+    }
+
+    private static int pawnStructure(long ours, long passed, int color) {
+        int score = 0;
+        for (int file = 0; file < 8; file++) {
+            int count = Long.bitCount(ours & FILES[file]);
+            if (count == 0) {
+                continue;
+            }
+            if (count > 1) {
+                score += DOUBLED * (count - 1);
+            }
+            if ((ours & ADJACENT_FILES[file]) == 0) {
+                score += ISOLATED * count;
+            }
+        }
+        while (passed != 0) {
+            int square = Long.numberOfTrailingZeros(passed);
+            passed &= passed - 1;
+            int rank = color == 0 ? square >>> 3 : 7 - (square >>> 3);
+            score += PASSED[rank];
+        }
+        return score;
+    }
+
+    /**
+     * Scores the kings' distances to the square in front of each passed pawn,
+     * which matters in the endgame and depends on more than the pawns, so it is
+     * worked out from the cached passed pawns each time
+     *
+     * @return the packed score, white minus black
+     */
+    private static int passerEscort(Bitboard bitboard, long passed) {
+        int whiteKing = bitboard.kingSquare(ChessGame.TeamColor.WHITE);
+        int blackKing = bitboard.kingSquare(ChessGame.TeamColor.BLACK);
+        if (passed == 0 || whiteKing == Bitboard.EMPTY || blackKing == Bitboard.EMPTY) {
+            return 0;
+        }
+        long white = bitboard.pieces(PAWN);
+        int score = 0;
+        while (passed != 0) {
+            int square = Long.numberOfTrailingZeros(passed);
+            passed &= passed - 1;
+            boolean isWhite = (white & (1L << square)) != 0;
+            int front = isWhite ? square + 8 : square - 8;
+            int ours = isWhite ? whiteKing : blackKing;
+            int theirs = isWhite ? blackKing : whiteKing;
+            int escort = ESCORT * (distance(theirs, front) - distance(ours, front));
+            score += isWhite ? escort : -escort;
+        }
+        return score;
+    }
+
+    private static int distance(int a, int b) {
+        return Math.max(Math.abs((a >>> 3) - (b >>> 3)), Math.abs((a & 7) - (b & 7)));
+    }
+
+    /**
+     * @return the packed king safety score for one team, only ever counting in the
+     * middlegame half
+     */
+    private static int kingSafety(Bitboard bitboard, ChessGame.TeamColor color) {
+        int king = bitboard.kingSquare(color);
+        if (king == Bitboard.EMPTY) {
+            return 0;
+        }
+        int us = color.ordinal();
+        long pawns = bitboard.pieces(us * 6 + PAWN);
+        int score = SHIELD_NEAR * Long.bitCount(pawns & SHIELD_NEAR_MASKS[us][king])
+                + SHIELD_FAR * Long.bitCount(pawns & SHIELD_FAR_MASKS[us][king]);
+
+        long zone = AttackTables.kingAttacks(king) | 1L << king;
+        long occupied = bitboard.occupied();
+        int base = (1 - us) * 6;
+        int attackers = 0;
+        int weight = 0;
+        for (int type = QUEEN; type < PAWN; type++) {
+            long pieces = bitboard.pieces(base + type);
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                if ((attacks(type, square, occupied) & zone) != 0) {
+                    attackers++;
+                    weight += ATTACK_WEIGHTS[type];
+                }
+            }
+        }
+        int penalty = weight * ATTACK_SCALE[Math.min(attackers, ATTACK_SCALE.length - 1)] / 100;
+        return score - PieceSquareTables.pack(penalty, 0);
+    }
+
+    private static long attacks(int type, int square, long occupied) {
+        if (type == KNIGHT) {
+            return AttackTables.knightAttacks(square);
+        } else if (type == BISHOP) {
+            return AttackTables.bishopAttacks(square, occupied);
+        } else if (type == ROOK) {
+            return AttackTables.rookAttacks(square, occupied);
+        }
+        return AttackTables.queenAttacks(square, occupied);
+    }
+}
@@ -0,0 +1,164 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * An opening book read straight from a memory-mapped file.
+ * <p>
+ * The file starts with an 8-byte header, {@link #MAGIC}, then holds 16-byte
+ * entries sorted by position key: the {@link ChessGame#positionKey()} of the
+ * position (8 bytes), the move played from it as packed by {@link PackedMove}
+ * without flags (4 bytes), and the move's weight (4 bytes), all big-endian.
+ * Entries for the same position are sorted by weight, heaviest first.
+ * {@link BookBuilder} writes such files from PGN.
+ * <p>
+ * A lookup is a binary search over the mapped file, so the book takes no heap
+ * beyond this object however large it is, and the operating system pages in only
+ * what lookups touch. Reads never move the buffer's position, so one book can
+ * serve any number of threads.
+ */
+public final class OpeningBook {
+
+    /**
+     * "CHSBOOK" followed by the format version, 1
+     */
+    public static final long MAGIC = 0x4348_5342_4F4F_4B01L;
+    static final int HEADER_BYTES = 8;
+    static final int ENTRY_BYTES = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    private OpeningBook(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = (buffer.capacity() - HEADER_BYTES) / ENTRY_BYTES;
+    }
+
+    /**
+     * Maps a book file into memory. The file is not read, and its channel is closed
+     * again straight away; the mapping stays valid until the book is collected.
+     *
+     * @throws IOException if the file cannot be read or is not a book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES || (length - HEADER_BYTES) % ENTRY_BYTES != 0
+                    || length > Integer.MAX_VALUE) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.getLong(0) != MAGIC) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            return new OpeningBook(buffer);
+        }
+    }
+
+    /**
+     * @return the number of entries in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the heaviest book move that is legal in the position, packed with its
+     * flags, or {@link PackedMove#NONE} if the book has none
+     */
+    public int bestMove(ChessGame game) {
+        long key = game.positionKey();
+        int index = firstIndex(key);
+        if (index == size || key(index) != key) {
+            return PackedMove.NONE;
+        }
+        MoveList legal = new MoveList();
+        game.generateMoves(legal);
+        for (; index < size && key(index) == key; index++) {
+            int move = legal.find(move(index));
+            if (move != PackedMove.NONE) {
+                return move;
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    /**
+     * Picks a book move at random, each with a chance in proportion to its weight,
+     * so the computer does not play the same opening every game
+     *
+     * @return the legal book move picked, packed with its flags, or
+     * {@link PackedMove#NONE} if the book has none
+     */
+    public int pickMove(ChessGame game, Random random) {
+        long key = game.positionKey();
+        int first = firstIndex(key);
+        if (first == size || key(first) != key) {
+            return PackedMove.NONE;
+        }
+        MoveList legal = new MoveList();
+        game.generateMoves(legal);
+        long total = 0;
+        int end = first;
+        for (; end < size && key(end) == key; end++) {
+            if (legal.find(move(end)) != PackedMove.NONE) {
+                total += weight(end);
+            }
+        }
+        if (total == 0) {
+            return PackedMove.NONE;
+        }
+        long pick = (long) (random.nextDouble() * total);
+        for (int index = first; index < end; index++) {
+            int move = legal.find(move(index));
+            if (move == PackedMove.NONE) {
+                continue;
+            }
+            pick -= weight(index);
+            if (pick < 0) {
+                return move;
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    /**
+     * @return the index of the first entry whose key is not below the given one
+     */
+    private int firstIndex(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (key(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long key(int index) {
+        return buffer.getLong(HEADER_BYTES + index * ENTRY_BYTES);
+    }
+
+    private int move(int index) {
+        return buffer.getInt(HEADER_BYTES + index * ENTRY_BYTES + 8);
+    }
+
+    private int weight(int index) {
+        return buffer.getInt(HEADER_BYTES + index * ENTRY_BYTES + 12);
+    }
+}
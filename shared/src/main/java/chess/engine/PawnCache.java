@@ -0,0 +1,62 @@
+package chess.engine;
+
+/**
+ * A fixed-size cache of pawn structure evaluations, keyed by
+ * {@link chess.Bitboard#pawnKey()}. Pawns move in few of the positions a search
+ * visits, so most evaluations find their pawn structure already scored here.
+ * <p>
+ * Each slot holds one position's packed pawn structure score and the squares of
+ * its passed pawns, both colors together. A new entry simply replaces the old
+ * one in its slot. Slots start out holding the empty pawn structure, whose key,
+ * score and passed pawns are all 0, so they are correct from the start.
+ * <p>
+ * Unlike the {@link TranspositionTable} it is not safe to share between threads;
+ * give each evaluating thread its own.
+ */
+public final class PawnCache {
+
+    private final long[] keys;
+    private final int[] scores;
+    private final long[] passed;
+    private final int mask;
+
+    /**
+     * @param entries the number of slots, rounded down to a power of two
+     */
+    public PawnCache(int entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("Pawn cache needs at least one entry");
+        }
+        int size = Integer.highestOneBit(entries);
+        keys = new long[size];
+        scores = new int[size];
+        passed = new long[size];
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    int slot(long key) {
+        return (int) key & mask;
+    }
+
+    boolean holds(int slot, long key) {
+        return keys[slot] == key;
+    }
+
+    int score(int slot) {
+        return scores[slot];
+    }
+
+    long passed(int slot) {
+        return passed[slot];
+    }
+
+    void store(int slot, long key, int score, long passedPawns) {
+        keys[slot] = key;
+        scores[slot] = score;
+        passed[slot] = passedPawns;
+    }
+}
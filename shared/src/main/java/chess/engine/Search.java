@@ -0,0 +1,558 @@
+package chess.engine;
+
+import chess.Bitboard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+import chess.TablebaseResult;
+import chess.Tablebases;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Picks a move by iterative-deepening alpha-beta search.
+ * <p>
+ * Each iteration searches one ply deeper than the last, trying the previous
+ * iteration's best line first. Within an iteration, captures are tried most
+ * valuable victim first and least valuable attacker first, then quiet moves that
+ * caused a cutoff at the same ply (killers), then the rest by how often they
+ * caused cutoffs anywhere (history). At the horizon a quiescence search keeps
+ * playing captures until the position is quiet, so a score is never taken in
+ * the middle of an exchange.
+ * <p>
+ * Results are kept in a {@link TranspositionTable}, so a position reached again
+ * by another move order is cut off from its stored bound, or at least searched
+ * with its stored best move first. The table may be shared with other searches.
+ * <p>
+ * Asked for more than one thread, the search runs lazy SMP: helper threads
+ * search the same root on their own copies of the game, with their own killer,
+ * history and pawn tables, and every other helper a ply deeper than the main
+ * thread. They share nothing but the transposition table, so what helps is the
+ * entries they leave there for the main thread to cut off on. Only the main
+ * thread's line is returned, and the helpers stop when it does. Helpers run on
+ * threads of their own unless given an executor to share, whose queued helpers
+ * are dropped if the main thread finishes before they start; every helper that
+ * did start is waited for and its nodes counted.
+ * <p>
+ * Asked for more than one line (multi-PV), each iteration searches the root
+ * once per line, leaving out the first moves of the lines already found, so the
+ * second line is the best move other than the best, and so on.
+ * <p>
+ * Given {@link Tablebases}, any position below the root that they cover is
+ * scored exactly from them instead of being searched.
+ * <p>
+ * The search plays moves on its own copy of the game and takes them back, so
+ * the game it was given is never touched. A Search is meant for one caller at a
+ * time.
+ */
+public final class Search {
+
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000;
+
+    private static final int MAX_PLY = 128;
+    private static final int CHECK_INTERVAL = 1024;
+
+    private static final int DEFAULT_TABLE_MEGABYTES = 16;
+    private static final int PAWN_CACHE_ENTRIES = 1 << 14;
+
+    private static final int HASH_BONUS = 5_000_000;
+    private static final int PV_BONUS = 4_000_000;
+    private static final int CAPTURE_BONUS = 2_000_000;
+    private static final int PROMOTION_BONUS = 1_500_000;
+    private static final int KILLER_BONUS = 1_000_000;
+
+    private final ChessGame game;
+    private final TranspositionTable table;
+    private final PawnCache pawnCache = new PawnCache(PAWN_CACHE_ENTRIES);
+    private final MoveList[] moveLists = new MoveList[MAX_PLY];
+    private final int[][] moveScores = new int[MAX_PLY][];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[Bitboard.PIECE_KINDS][64];
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private int[] previousPv = new int[0];
+    private Tablebases tablebases;
+    private Executor helperExecutor;
+    private final int[] excludedRootMoves = new int[256];
+    private int excludedCount;
+
+    private volatile boolean stopRequested;
+    private int depthOffset;
+    private boolean stopped;
+    private boolean canStop;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+
+    /**
+     * @param game the position to search from; it is copied, not changed
+     */
+    public Search(ChessGame game) {
+        this(game, new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+    }
+
+    /**
+     * @param game  the position to search from; it is copied, not changed
+     * @param table the table to keep results in, which may be shared
+     */
+    public Search(ChessGame game, TranspositionTable table) {
+        this.game = new ChessGame(game);
+        this.table = table;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            moveLists[ply] = new MoveList();
+            moveScores[ply] = new int[256];
+        }
+    }
+
+    /**
+     * @param tablebases the endgame tables to score positions from, or null for none
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * @param helperExecutor the executor to run helper threads on, which may be
+     *                       shared by many searches, or null to start a thread for
+     *                       each helper
+     */
+    public void setHelperExecutor(Executor helperExecutor) {
+        this.helperExecutor = helperExecutor;
+    }
+
+    /**
+     * Stops a running search from another thread. The search returns the result
+     * of the deepest iteration it finished.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public SearchResult search(SearchLimits limits) {
+        return analyze(limits, null).get(0);
+    }
+
+    /**
+     * Searches for the lines of as many of the best moves as the limits ask for
+     *
+     * @param listener called on this thread with the lines of every iteration as it
+     *                 completes, or null
+     * @return the lines of the deepest completed iteration, best first; there is
+     * always at least one, whose move is null if the side to move has none
+     */
+    public List<SearchResult> analyze(SearchLimits limits, Consumer<List<SearchResult>> listener) {
+        stopRequested = false;
+        table.newSearch();
+
+        Search[] helpers = new Search[Math.max(0, limits.threads() - 1)];
+        FutureTask<?>[] workers = new FutureTask<?>[helpers.length];
+        // Whoever sets a helper's flag first decides whether it runs: the helper
+        // as it starts, or this thread once it is done and skips the helper
+        AtomicBoolean[] claimed = new AtomicBoolean[helpers.length];
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = new Search(game, table);
+            helper.depthOffset = (i + 1) % 2;
+            helper.tablebases = tablebases;
+            helpers[i] = helper;
+            AtomicBoolean claim = new AtomicBoolean();
+            claimed[i] = claim;
+            workers[i] = new FutureTask<>(() -> claim.compareAndSet(false, true)
+                    ? helper.iterate(SearchLimits.depth(SearchLimits.MAX_DEPTH), true, null) : null);
+            if (helperExecutor != null) {
+                helperExecutor.execute(workers[i]);
+            } else {
+                Thread.ofPlatform().daemon().name("search-helper-" + (i + 1)).start(workers[i]);
+            }
+        }
+
+        List<SearchResult> lines = iterate(limits, false, listener);
+
+        long totalNodes = lines.get(0).nodes();
+        boolean interrupted = false;
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i].stop();
+            if (claimed[i].compareAndSet(false, true)) {
+                continue;
+            }
+            while (true) {
+                try {
+                    workers[i].get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Search helper failed", e.getCause());
+                }
+            }
+            totalNodes += helpers[i].nodes;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        List<SearchResult> results = new ArrayList<>(lines.size());
+        for (SearchResult line : lines) {
+            results.add(new SearchResult(line.bestMove(), line.score(), line.depth(), totalNodes,
+                    line.principalVariation()));
+        }
+        return List.copyOf(results);
+    }
+
+    /**
+     * Runs the iterative deepening loop on this thread
+     *
+     * @param helper   whether this is a helper, which may stop at any point since
+     *                 its result is thrown away
+     * @param listener called with the lines of every completed iteration, or null
+     */
+    private List<SearchResult> iterate(SearchLimits limits, boolean helper,
+                                       Consumer<List<SearchResult>> listener) {
+        stopped = false;
+        canStop = helper;
+        nodes = 0;
+        nodeLimit = limits.nodes();
+        long now = System.nanoTime();
+        deadline = limits.millis() >= Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE : now + limits.millis() * 1_000_000;
+        previousPv = new int[0];
+
+        int lineCount = helper ? 1 : limits.lines();
+        int[][] linePvs = {new int[0]};
+        List<SearchResult> results = List.of(new SearchResult(null, 0, 0, 0, List.of()));
+        int maxDepth = Math.min(limits.depth(), SearchLimits.MAX_DEPTH);
+        for (int iteration = 1; iteration <= maxDepth; iteration++) {
+            int depth = Math.min(iteration + depthOffset, maxDepth);
+            int[][] pvs = new int[lineCount][];
+            int[] scores = new int[lineCount];
+            int found = 0;
+            excludedCount = 0;
+            while (found < lineCount) {
+                previousPv = found < linePvs.length ? linePvs[found] : new int[0];
+                int score = alphaBeta(depth, -INFINITY, INFINITY, 0);
+                if (stopped || (pvLength[0] == 0 && found > 0)) {
+                    break;
+                }
+                pvs[found] = Arrays.copyOf(pv[0], pvLength[0]);
+                scores[found] = score;
+                found++;
+                if (pvLength[0] == 0) {
+                    break;
+                }
+                excludedRootMoves[excludedCount++] = pv[0][0];
+            }
+            excludedCount = 0;
+            if (stopped) {
+                break;
+            }
+            linePvs = Arrays.copyOf(pvs, found);
+            results = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                results.add(toResult(linePvs[i], scores[i], depth));
+            }
+            results = List.copyOf(results);
+            if (listener != null) {
+                listener.accept(results);
+            }
+            canStop = true;
+            if (Math.abs(scores[0]) > MATE - MAX_PLY) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private SearchResult toResult(int[] line, int score, int depth) {
+        List<ChessMove> moves = new ArrayList<>(line.length);
+        for (int move : line) {
+            moves.add(PackedMove.toChessMove(move));
+        }
+        ChessMove bestMove = moves.isEmpty() ? null : moves.get(0);
+        return new SearchResult(bestMove, score, depth, nodes, List.copyOf(moves));
+    }
+
+    private boolean isExcluded(int move) {
+        for (int i = 0; i < excludedCount; i++) {
+            if (excludedRootMoves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int alphaBeta(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if (ply > 0 && isDraw()) {
+            return 0;
+        }
+        if (ply > 0 && tablebases != null
+                && Long.bitCount(game.getBoard().getBitboard().occupied()) <= Tablebases.MAX_PIECES) {
+            TablebaseResult result = game.probeTablebases(tablebases);
+            if (result != null) {
+                countNode();
+                return tablebaseScore(result, ply);
+            }
+        }
+        boolean inCheck = inCheck();
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiescence(alpha, beta, ply);
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluator.evaluate(game, pawnCache);
+        }
+        countNode();
+
+        long key = game.positionKey();
+        long entry = table.probe(key);
+        int hashMove = PackedMove.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        game.generateMoves(moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(moves, ply, hashMove, false);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = nextMove(moves, ply, i);
+            if (ply == 0 && excludedCount > 0 && isExcluded(move)) {
+                continue;
+            }
+            boolean quiet = isQuiet(move);
+            int piece = game.getBoard().getBitboard().pieceAt(PackedMove.from(move));
+            game.play(move);
+            int score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1);
+            game.undo();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            storeKiller(ply, move);
+                            history[piece][PackedMove.to(move)] += depth * depth;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (ply == 0 && excludedCount > 0) {
+            // Not the root's true score with its best moves left out
+            return best;
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bound == TranspositionTable.UPPER ? PackedMove.NONE : bestMove,
+                toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Scores a tablebase outcome like a mate found by the search. A mate too far
+     * off to be told apart from other scores still outscores anything else.
+     */
+    private static int tablebaseScore(TablebaseResult result, int ply) {
+        if (result.draw()) {
+            return 0;
+        }
+        int distance = ply + result.pliesToMate();
+        int score = distance < MAX_PLY ? MATE - distance : MATE - MAX_PLY;
+        return result.isWin() ? score : -score;
+    }
+
+    /**
+     * Mate scores count plies from the root, but a stored position may be reached
+     * at another ply, so they are stored counting from the position itself
+     */
+    private static int toTable(int score, int ply) {
+        if (score > MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score < -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score > MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score < -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private int quiescence(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        countNode();
+        int standPat = Evaluator.evaluate(game, pawnCache);
+        if (standPat >= beta || ply >= MAX_PLY - 1) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        game.generateMoves(moves);
+        scoreMoves(moves, ply, PackedMove.NONE, true);
+
+        int best = standPat;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = nextMove(moves, ply, i);
+            if (isQuiet(move)) {
+                // Captures and promotions are sorted first, so the rest are quiet too
+                break;
+            }
+            game.play(move);
+            int score = -quiescence(-beta, -alpha, ply + 1);
+            game.undo();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private boolean isDraw() {
+        return game.getHalfmoveClock() >= 100 || game.repetitions() > 0 || game.isInsufficientMaterial();
+    }
+
+    private boolean inCheck() {
+        Bitboard bitboard = game.getBoard().getBitboard();
+        int king = bitboard.kingSquare(game.getTeamTurn());
+        return king != Bitboard.EMPTY && bitboard.isAttacked(king, game.getTeamTurn().opponent());
+    }
+
+    private boolean isQuiet(int move) {
+        return game.getBoard().getBitboard().pieceAt(PackedMove.to(move)) == Bitboard.EMPTY
+                && (PackedMove.flags(move) & PackedMove.EN_PASSANT) == 0
+                && PackedMove.promotion(move) == null;
+    }
+
+    private void scoreMoves(MoveList moves, int ply, int hashMove, boolean capturesOnly) {
+        Bitboard bitboard = game.getBoard().getBitboard();
+        int pvMove = !capturesOnly && ply < previousPv.length ? previousPv[ply] : PackedMove.NONE;
+        int[] scores = moveScores[ply];
+        if (scores.length < moves.size()) {
+            scores = moveScores[ply] = new int[moves.size()];
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int piece = bitboard.pieceAt(PackedMove.from(move));
+            int victim = bitboard.pieceAt(PackedMove.to(move));
+            int score;
+            if (move == hashMove) {
+                score = HASH_BONUS;
+            } else if (move == pvMove) {
+                score = PV_BONUS;
+            } else if (victim != Bitboard.EMPTY || (PackedMove.flags(move) & PackedMove.EN_PASSANT) != 0) {
+                int victimValue = victim == Bitboard.EMPTY ? Evaluator.value(ChessPiece.PieceType.PAWN)
+                        : Evaluator.value(Bitboard.typeOf(victim));
+                score = CAPTURE_BONUS + victimValue * 16 - Evaluator.value(Bitboard.typeOf(piece)) / 16;
+            } else if (PackedMove.promotion(move) != null) {
+                score = PROMOTION_BONUS + Evaluator.value(PackedMove.promotion(move));
+            } else if (move == killers[ply][0]) {
+                score = KILLER_BONUS + 1;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_BONUS;
+            } else {
+                score = Math.min(history[piece][PackedMove.to(move)], KILLER_BONUS - 1);
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Moves the best scored of the remaining moves to the given index and returns
+     * it. Selecting one at a time is cheaper than a full sort when a cutoff comes
+     * early, which is the point of ordering.
+     */
+    private int nextMove(MoveList moves, int ply, int index) {
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves.get(best);
+        if (best != index) {
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return move;
+    }
+
+    private void storeKiller(int ply, int move) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, length - ply - 1);
+        pvLength[ply] = Math.max(length, ply + 1);
+    }
+
+    private void countNode() {
+        nodes++;
+        if (!canStop) {
+            return;
+        }
+        if (stopRequested || nodes >= nodeLimit
+                || (nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline)) {
+            stopped = true;
+        }
+    }
+}
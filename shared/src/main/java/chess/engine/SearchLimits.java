@@ -0,0 +1,52 @@
+package chess.engine;
+
+/**
+ * When a search should stop, how many threads it may use, and how many of the
+ * best moves to find lines for. Whichever limit is reached first ends it, though
+ * the first iteration always completes so there is a move to return.
+ *
+ * @param depth   the deepest iteration to search, in plies
+ * @param millis  the wall-clock time allowed, in milliseconds
+ * @param nodes   the number of positions the main thread may visit
+ * @param threads the number of threads to search with, at least one
+ * @param lines   the number of best moves to find a line and score for, at least one
+ */
+public record SearchLimits(int depth, long millis, long nodes, int threads, int lines) {
+
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least one thread");
+        }
+        if (lines < 1) {
+            throw new IllegalArgumentException("A search needs at least one line");
+        }
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, Long.MAX_VALUE, Long.MAX_VALUE, 1, 1);
+    }
+
+    public static SearchLimits time(long millis) {
+        return new SearchLimits(MAX_DEPTH, millis, Long.MAX_VALUE, 1, 1);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(MAX_DEPTH, Long.MAX_VALUE, nodes, 1, 1);
+    }
+
+    /**
+     * @return the same limits searched with the given number of threads
+     */
+    public SearchLimits withThreads(int threads) {
+        return new SearchLimits(depth, millis, nodes, threads, lines);
+    }
+
+    /**
+     * @return the same limits searched for lines of the given number of best moves
+     */
+    public SearchLimits withLines(int lines) {
+        return new SearchLimits(depth, millis, nodes, threads, lines);
+    }
+}
@@ -0,0 +1,26 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * The outcome of a search
+ *
+ * @param bestMove            the move to play, or null if the side to move has none
+ * @param score               the score in centipawns for the side to move; mates are
+ *                            reported as {@link Search#MATE} less the plies to mate
+ * @param depth               the deepest iteration that completed
+ * @param nodes               the number of positions visited
+ * @param principalVariation the expected line of play, starting with the best move
+ */
+public record SearchResult(ChessMove bestMove, int score, int depth, long nodes,
+                           List<ChessMove> principalVariation) {
+
+    /**
+     * @return True if the score is a forced mate for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) > Search.MATE - SearchLimits.MAX_DEPTH * 2;
+    }
+}
@@ -0,0 +1,183 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results, shared by any number of search
+ * threads without locking.
+ * <p>
+ * Entries live in buckets of four, one bucket to a 64-byte cache line, and a
+ * position's bucket is chosen by the low bits of its key. Each entry is two
+ * longs: the data, and the key XORed with the data. Two threads writing the same
+ * entry at once can leave one's key beside the other's data, but then the XOR no
+ * longer gives back the probing key and the entry reads as a miss, so a torn
+ * write costs a lookup rather than a wrong result.
+ * <p>
+ * Data packs the best move into bits 0-19, the score into bits 20-35, the depth
+ * into bits 36-43, the bound into bits 44-45 and the generation into bits 46-53.
+ * A bound is never zero, so neither is stored data, and a probe returns 0 for a
+ * miss.
+ */
+public final class TranspositionTable {
+
+    public static final int UPPER = 1;
+    public static final int LOWER = 2;
+    public static final int EXACT = 3;
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int BUCKET_LONGS = BUCKET_SIZE * 2;
+    private static final int BUCKET_BYTES = BUCKET_LONGS * Long.BYTES;
+
+    private static final int SCORE_SHIFT = 20;
+    private static final int DEPTH_SHIFT = 36;
+    private static final int BOUND_SHIFT = 44;
+    private static final int GENERATION_SHIFT = 46;
+    private static final long MOVE_MASK = 0xFFFFFL;
+    private static final int GENERATIONS = 256;
+    private static final long MAX_BUCKETS = 1L << 27;
+
+    private final long[] table;
+    private final long bucketMask;
+    private volatile int generation;
+
+    /**
+     * @param megabytes the most memory the table may use; it is rounded down to a
+     *                  power of two number of buckets
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Transposition table needs at least 1 MB");
+        }
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / BUCKET_BYTES);
+        buckets = Math.min(buckets, MAX_BUCKETS);
+        table = new long[(int) (buckets * BUCKET_LONGS)];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * @return the number of entries the table holds
+     */
+    public int capacity() {
+        return table.length / 2;
+    }
+
+    /**
+     * Marks the start of a new search, so entries left from earlier searches are
+     * replaced ahead of current ones. This ages every entry in the table, so
+     * searches of unrelated positions running at once should not share one.
+     */
+    public void newSearch() {
+        generation = (generation + 1) % GENERATIONS;
+    }
+
+    /**
+     * Empties the table. Not safe to call while a search is using it.
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+    }
+
+    /**
+     * @return the stored data for the position, or 0 if it is not in the table
+     */
+    public long probe(long key) {
+        int base = bucket(key);
+        for (int i = base; i < base + BUCKET_LONGS; i += 2) {
+            long data = table[i];
+            if (data != 0 && (table[i + 1] ^ data) == key) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores a search result, replacing the entry for the same position if there is
+     * one, and otherwise the entry in the bucket that is oldest and then shallowest.
+     * A result without a move keeps the move already stored for the position.
+     *
+     * @param score a score between -32768 and 32767, already adjusted so a mate
+     *              score counts from this position rather than the root
+     * @param bound one of {@link #UPPER}, {@link #LOWER} or {@link #EXACT}
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int base = bucket(key);
+        int current = generation;
+        int target = base;
+        int worst = Integer.MAX_VALUE;
+        for (int i = base; i < base + BUCKET_LONGS; i += 2) {
+            long data = table[i];
+            if (data == 0) {
+                if (worst > Integer.MIN_VALUE) {
+                    target = i;
+                    worst = Integer.MIN_VALUE;
+                }
+                continue;
+            }
+            if ((table[i + 1] ^ data) == key) {
+                if (move == 0) {
+                    move = move(data);
+                }
+                // Keep a deeper result for this position from the current search
+                if (generation(data) == current && depth(data) > depth + 2 && bound != EXACT) {
+                    return;
+                }
+                target = i;
+                break;
+            }
+            int age = (current - generation(data) + GENERATIONS) % GENERATIONS;
+            int value = depth(data) - 8 * age;
+            if (value < worst) {
+                target = i;
+                worst = value;
+            }
+        }
+        long data = (move & MOVE_MASK)
+                | ((long) (score & 0xFFFF) << SCORE_SHIFT)
+                | ((long) Math.max(0, Math.min(depth, 255)) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) current << GENERATION_SHIFT);
+        table[target] = data;
+        table[target + 1] = key ^ data;
+    }
+
+    /**
+     * @return roughly how full the table is in thousandths, counting only entries
+     * from the current search
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, capacity());
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = table[i * 2];
+            if (data != 0 && generation(data) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    public static int move(long data) {
+        return (int) (data & MOVE_MASK);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> GENERATION_SHIFT) & 0xFF;
+    }
+
+    private int bucket(long key) {
+        return (int) (key & bucketMask) * BUCKET_LONGS;
+    }
+}
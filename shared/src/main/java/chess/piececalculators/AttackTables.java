@@ -0,0 +1,227 @@
+package chess.piececalculators;
+
+import chess.ChessGame;
+
+/**
+ * Precomputed attack sets for every piece. Knight, king and pawn attacks are plain
+ * per-square tables; the sliding pieces are indexed with magic bitboards.
+ * <p>
+ * For every square the relevant blockers (the ray squares, not counting the board
+ * edge) are multiplied by a magic number and shifted down to an index into that
+ * square's slice of the table. The magics are searched for once, when the class is
+ * loaded, from fixed seeds so every JVM builds identical tables.
+ */
+public final class AttackTables {
+
+    private static final int[][] ROOK_DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    // Seeds per row that find a full set of magics quickly, as used by Stockfish
+    private static final long[] SEEDS = {728, 10316, 55013, 32803, 12281, 15100, 16645, 255};
+
+    private static final int[][] KNIGHT_STEPS = {{1, 2}, {1, -2}, {-1, 2}, {-1, -2}, {2, 1}, {2, -1}, {-2, 1}, {-2, -1}};
+    private static final int[][] KING_STEPS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final Magic[] ROOK_MAGICS = new Magic[64];
+    private static final Magic[] BISHOP_MAGICS = new Magic[64];
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = stepAttacks(square, KNIGHT_STEPS);
+            KING_ATTACKS[square] = stepAttacks(square, KING_STEPS);
+            PAWN_ATTACKS[0][square] = stepAttacks(square, new int[][]{{1, 1}, {1, -1}});
+            PAWN_ATTACKS[1][square] = stepAttacks(square, new int[][]{{-1, 1}, {-1, -1}});
+        }
+        initMagics(ROOK_MAGICS, ROOK_DIRECTIONS);
+        initMagics(BISHOP_MAGICS, BISHOP_DIRECTIONS);
+        initLines();
+    }
+
+    private AttackTables() {
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * @param color  the team the pawn belongs to
+     * @param square the square index of the pawn
+     * @return the two (or, on the edge, one) squares the pawn captures on
+     */
+    public static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    /**
+     * @param square   the square index of the rook
+     * @param occupied every occupied square on the board
+     * @return the squares a rook attacks, including the first blocker on each ray
+     */
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_MAGICS[square].attacks(occupied);
+    }
+
+    /**
+     * @param square   the square index of the bishop
+     * @param occupied every occupied square on the board
+     * @return the squares a bishop attacks, including the first blocker on each ray
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_MAGICS[square].attacks(occupied);
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * @return the squares strictly between two squares that share a row, column
+     * or diagonal, or 0 if they do not
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return the whole row, column or diagonal running through two squares, or 0
+     * if they are not aligned
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    private record Magic(long mask, long magic, int shift, long[] attacks) {
+        long attacks(long occupied) {
+            return attacks[(int) (((occupied & mask) * magic) >>> shift)];
+        }
+    }
+
+    private static void initLines() {
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                if (from == to) { continue; }
+                long fromBit = 1L << from;
+                long toBit = 1L << to;
+                for (int[][] directions : new int[][][]{ROOK_DIRECTIONS, BISHOP_DIRECTIONS}) {
+                    if ((slidingAttacks(from, 0L, directions) & toBit) != 0) {
+                        BETWEEN[from][to] = slidingAttacks(from, toBit, directions)
+                                & slidingAttacks(to, fromBit, directions);
+                        LINE[from][to] = (slidingAttacks(from, 0L, directions)
+                                & slidingAttacks(to, 0L, directions)) | fromBit | toBit;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void initMagics(Magic[] magics, int[][] directions) {
+        long[] occupancies = new long[4096];
+        long[] reference = new long[4096];
+        int[] epoch = new int[4096];
+        int attempt = 0;
+
+        for (int square = 0; square < 64; square++) {
+            long mask = slidingAttacks(square, 0L, directions) & ~edges(square);
+            int bits = Long.bitCount(mask);
+            int shift = 64 - bits;
+            long[] attacks = new long[1 << bits];
+
+            // Carry-rippler walk over every subset of the mask
+            int size = 0;
+            long subset = 0L;
+            do {
+                occupancies[size] = subset;
+                reference[size] = slidingAttacks(square, subset, directions);
+                size++;
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+
+            long seed = SEEDS[square >>> 3];
+            long magic;
+            boolean found;
+            do {
+                do {
+                    seed = next(seed);
+                    long r1 = seed * 2685821657736338717L;
+                    seed = next(seed);
+                    long r2 = seed * 2685821657736338717L;
+                    seed = next(seed);
+                    long r3 = seed * 2685821657736338717L;
+                    magic = r1 & r2 & r3;
+                } while (Long.bitCount((magic * mask) >>> 56) < 6);
+
+                attempt++;
+                found = true;
+                for (int i = 0; i < size; i++) {
+                    int index = (int) ((occupancies[i] * magic) >>> shift);
+                    if (epoch[index] < attempt) {
+                        epoch[index] = attempt;
+                        attacks[index] = reference[i];
+                    } else if (attacks[index] != reference[i]) {
+                        found = false;
+                        break;
+                    }
+                }
+            } while (!found);
+
+            magics[square] = new Magic(mask, magic, shift, attacks);
+        }
+    }
+
+    private static long next(long seed) {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed;
+    }
+
+    private static long edges(int square) {
+        long rank1 = 0xFFL;
+        long rank8 = rank1 << 56;
+        long fileA = 0x0101010101010101L;
+        long fileH = fileA << 7;
+        int row = square >>> 3;
+        int col = square & 7;
+        return ((rank1 | rank8) & ~(rank1 << (8 * row))) | ((fileA | fileH) & ~(fileA << col));
+    }
+
+    private static long stepAttacks(int square, int[][] steps) {
+        long attacks = 0L;
+        for (int[] step : steps) {
+            int row = (square >>> 3) + step[0];
+            int col = (square & 7) + step[1];
+            if (row > 7 || row < 0 || col > 7 || col < 0) { continue; }
+            attacks |= 1L << (row * 8 + col);
+        }
+        return attacks;
+    }
+
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int row = square >>> 3;
+            int col = square & 7;
+            while (true) {
+                row += direction[0];
+                col += direction[1];
+                if (row > 7 || row < 0 || col > 7 || col < 0) { break; }
+                long bit = 1L << (row * 8 + col);
+                attacks |= bit;
+                if ((occupied & bit) != 0) { break; }
+            }
+        }
+        return attacks;
+    }
+}
@@ -1,21 +1,54 @@
 package chess.piececalculators;
 
-import chess.ChessBoard;
-import chess.ChessMove;
-import chess.ChessPosition;
-import chess.ChessPiece;
+import chess.Bitboard;
+import chess.Castling;
 import chess.ChessGame;
-
-import java.util.ArrayList;
-import java.util.Collection;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
 
 public class KingMovesCalculator implements PieceMovesCalculator {
 
     @Override
-    public Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> moves = new ArrayList<>();
-        int[][] directions = {{0,1},{0,-1},{1,0},{-1,0},{1,1},{1,-1},{-1,1},{-1,-1}};
-        addStepMoves(moves, board, position, directions);
-        return moves;
+    public void addMoves(Bitboard bitboard, int square, MoveList moves) {
+        addAttackMoves(bitboard, square, AttackTables.kingAttacks(square), moves);
+    }
+
+    /**
+     * Adds the legal castling moves of a team: the king must still have the right,
+     * stand on its home square with the rook on its own, have only empty squares
+     * between them, and not pass through or land on an attacked square
+     *
+     * @param bitboard the position
+     * @param color    the team castling, which must not be in check
+     * @param rights   the {@link Castling} rights of both teams
+     * @param moves    the list to add the moves to
+     */
+    public static void addCastlingMoves(Bitboard bitboard, ChessGame.TeamColor color, int rights, MoveList moves) {
+        int row = color == ChessGame.TeamColor.WHITE ? 1 : 8;
+        int kingSquare = Bitboard.square(row, 5);
+        if (bitboard.kingSquare(color) != kingSquare) {
+            return;
+        }
+        long rooks = bitboard.pieces(color, ChessPiece.PieceType.ROOK);
+        if ((rights & Castling.rights(color, true)) != 0) {
+            addCastle(bitboard, color, kingSquare, Bitboard.square(row, 8), 1, rooks, moves);
+        }
+        if ((rights & Castling.rights(color, false)) != 0) {
+            addCastle(bitboard, color, kingSquare, Bitboard.square(row, 1), -1, rooks, moves);
+        }
+    }
+
+    private static void addCastle(Bitboard bitboard, ChessGame.TeamColor color, int kingSquare, int rookSquare,
+                                  int step, long rooks, MoveList moves) {
+        if ((rooks & (1L << rookSquare)) == 0
+                || (bitboard.occupied() & AttackTables.between(kingSquare, rookSquare)) != 0) {
+            return;
+        }
+        ChessGame.TeamColor them = color.opponent();
+        if (bitboard.isAttacked(kingSquare + step, them) || bitboard.isAttacked(kingSquare + 2 * step, them)) {
+            return;
+        }
+        moves.add(PackedMove.withFlags(PackedMove.encode(kingSquare, kingSquare + 2 * step), PackedMove.CASTLE));
     }
-}
\ No newline at end of file
+}
@@ -1,72 +1,116 @@
 package chess.piececalculators;
 
-import chess.ChessBoard;
-import chess.ChessMove;
-import chess.ChessPosition;
-import chess.ChessPiece;
+import chess.Bitboard;
 import chess.ChessGame;
-
-import java.util.ArrayList;
-import java.util.Collection;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
 
 public class PawnMovesCalculator implements PieceMovesCalculator {
 
+    private static final long PROMOTION_ROWS = 0xFF000000000000FFL;
+
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT
+    };
+
     @Override
-    public Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> moves = new ArrayList<>();
-        ChessGame.TeamColor teamColor = board.getPiece(position).getTeamColor();
+    public void addMoves(Bitboard bitboard, int square, MoveList moves) {
+        ChessGame.TeamColor teamColor = Bitboard.colorOf(bitboard.pieceAt(square));
+        addPawnMoves(square, teamColor, bitboard.occupied(), bitboard.color(teamColor.opponent()), -1L, moves);
+    }
 
-        int x = position.getRow();
-        int y = position.getColumn();
-        int updown = 1;
-        int startRow = 2;
-        int promotionRow = 8;
+    /**
+     * Adds the pushes and captures of a pawn, keeping only those that end on an
+     * allowed square
+     *
+     * @param square   the pawn's square
+     * @param color    the pawn's team
+     * @param occupied every occupied square
+     * @param theirs   the squares holding pieces the pawn may capture
+     * @param allowed  a mask of the end squares to keep
+     * @param moves    the list to add the moves to
+     */
+    public static void addPawnMoves(int square, ChessGame.TeamColor color, long occupied, long theirs,
+                                    long allowed, MoveList moves) {
+        int forward = color == ChessGame.TeamColor.WHITE ? 8 : -8;
+        int startRow = color == ChessGame.TeamColor.WHITE ? 2 : 7;
 
-        if (teamColor == ChessGame.TeamColor.BLACK) {
-            updown = -1;
-            startRow = 7;
-            promotionRow = 1;
+        int single = square + forward;
+        if (single < 0 || single > 63) {
+            return;
         }
-
-        x += updown;
-        ChessPosition target = new ChessPosition(x, y);
-        ChessPiece targetPiece = board.getPiece(target);
-        if (targetPiece == null) {
-            if (x == promotionRow) {
-                addPromotionMove(moves, position, target);
-            } else {
-                moves.add(new ChessMove(position, target, null));
+        if ((occupied & (1L << single)) == 0) {
+            if ((allowed & (1L << single)) != 0) {
+                addPawnMove(square, single, moves);
             }
-        }
-        if (position.getRow() == startRow ) {
-            x += updown;
-            ChessPosition targetTwo = new ChessPosition(x, y);
-            ChessPiece targetPiece2 = board.getPiece(targetTwo);
-            if (targetPiece == null && targetPiece2 == null) {
-                moves.add(new ChessMove(position, targetTwo, null));
+            int twice = single + forward;
+            if (Bitboard.row(square) == startRow && (occupied & (1L << twice)) == 0
+                    && (allowed & (1L << twice)) != 0) {
+                moves.add(PackedMove.encode(square, twice));
             }
         }
-        int[][] directions = {{updown, 1}, {updown, -1}};
-        for (int[] direction : directions) {
-            x = position.getRow() + direction[0];
-            y = position.getColumn() + direction[1];
-            if (y < 1 || y > 8) { continue; }
-            target = new ChessPosition(x, y);
-            targetPiece = board.getPiece(target);
-            if (x == promotionRow && targetPiece != null && targetPiece.getTeamColor() != teamColor) {
-                addPromotionMove(moves, position, target); // ← and here
-            } else if (targetPiece != null && targetPiece.getTeamColor() != teamColor) {
-                moves.add(new ChessMove(position, target, null));
+
+        long captures = AttackTables.pawnAttacks(color, square) & theirs & allowed;
+        while (captures != 0) {
+            int target = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            addPawnMove(square, target, moves);
+        }
+    }
+
+    /**
+     * Adds the legal en passant captures onto a square. The two pawns leaving the
+     * same row can uncover an attack no pin test would catch, so each capture is
+     * checked against the board as it would be afterwards.
+     *
+     * @param bitboard  the position
+     * @param color     the capturing team
+     * @param enPassant the square the opposing pawn skipped over
+     * @param from      a mask of the pawns allowed to capture
+     * @param moves     the list to add the moves to
+     */
+    public static void addEnPassantMoves(Bitboard bitboard, ChessGame.TeamColor color, int enPassant, long from,
+                                         MoveList moves) {
+        long pawns = AttackTables.pawnAttacks(color.opponent(), enPassant)
+                & bitboard.pieces(color, ChessPiece.PieceType.PAWN) & from;
+        int captured = enPassant + (color == ChessGame.TeamColor.WHITE ? -8 : 8);
+        while (pawns != 0) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            if (leavesKingSafe(bitboard, color, square, enPassant, captured)) {
+                moves.add(PackedMove.withFlags(PackedMove.encode(square, enPassant), PackedMove.EN_PASSANT));
             }
         }
+    }
 
-        return moves;
+    private static boolean leavesKingSafe(Bitboard bitboard, ChessGame.TeamColor color, int from, int to,
+                                          int captured) {
+        int kingSquare = bitboard.kingSquare(color);
+        if (kingSquare == Bitboard.EMPTY) {
+            return true;
+        }
+        ChessGame.TeamColor them = color.opponent();
+        long occupied = (bitboard.occupied() & ~(1L << from) & ~(1L << captured)) | (1L << to);
+        long queens = bitboard.pieces(them, ChessPiece.PieceType.QUEEN);
+        long attackers = (AttackTables.knightAttacks(kingSquare) & bitboard.pieces(them, ChessPiece.PieceType.KNIGHT))
+                | (AttackTables.pawnAttacks(color, kingSquare) & bitboard.pieces(them, ChessPiece.PieceType.PAWN)
+                        & ~(1L << captured))
+                | (AttackTables.bishopAttacks(kingSquare, occupied)
+                        & (bitboard.pieces(them, ChessPiece.PieceType.BISHOP) | queens))
+                | (AttackTables.rookAttacks(kingSquare, occupied)
+                        & (bitboard.pieces(them, ChessPiece.PieceType.ROOK) | queens));
+        return attackers == 0;
     }
 
-    private void addPromotionMove(Collection<ChessMove> moves, ChessPosition start, ChessPosition end) {
-        moves.add(new ChessMove(start, end, ChessPiece.PieceType.QUEEN));
-        moves.add(new ChessMove(start, end, ChessPiece.PieceType.ROOK));
-        moves.add(new ChessMove(start, end, ChessPiece.PieceType.BISHOP));
-        moves.add(new ChessMove(start, end, ChessPiece.PieceType.KNIGHT));
+    private static void addPawnMove(int from, int to, MoveList moves) {
+        if (((1L << to) & PROMOTION_ROWS) != 0) {
+            for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                moves.add(PackedMove.encode(from, to, promotion));
+            }
+        } else {
+            moves.add(PackedMove.encode(from, to));
+        }
     }
-}
\ No newline at end of file
+}
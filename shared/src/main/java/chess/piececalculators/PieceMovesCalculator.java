@@ -1,52 +1,36 @@
 package chess.piececalculators;
 
+import chess.Bitboard;
 import chess.ChessBoard;
 import chess.ChessMove;
 import chess.ChessPosition;
-import chess.ChessPiece;
 import chess.ChessGame;
+import chess.MoveList;
+import chess.PackedMove;
 
 import java.util.Collection;
 
 public interface PieceMovesCalculator {
-    Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition position);
 
-    default void addSlidingMoves(Collection<ChessMove> moves, ChessBoard board, ChessPosition position, int[][] directions) {
-        ChessGame.TeamColor teamColor = board.getPiece(position).getTeamColor();
-        for (int[] direction : directions) {
-            int x = position.getRow();
-            int y = position.getColumn();
-            while (true) {
-                x += direction[0];
-                y += direction[1];
-                if (x > 8 || x < 1 || y > 8 || y < 1) { break; }
-                ChessPosition target = new ChessPosition(x, y);
-                ChessPiece targetPiece = board.getPiece(target);
-                if (targetPiece == null) {
-                    moves.add(new ChessMove(position, target, null));
-                }
-                else if (targetPiece.getTeamColor() != teamColor) {
-                    moves.add(new ChessMove(position, target, null));
-                    break;
-                }
-                else {
-                    break;
-                }
-            }
-        }
+    /**
+     * Adds the moves of the piece on a square to a move list, without checking
+     * whether they leave its king in danger
+     */
+    void addMoves(Bitboard bitboard, int square, MoveList moves);
+
+    default Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition position) {
+        MoveList moves = new MoveList(32);
+        addMoves(board.getBitboard(), Bitboard.square(position), moves);
+        return moves.toChessMoves();
     }
 
-    default void addStepMoves(Collection<ChessMove> moves, ChessBoard board, ChessPosition position, int[][] directions) {
-        ChessGame.TeamColor teamColor = board.getPiece(position).getTeamColor();
-        for (int[] direction : directions) {
-            int x = position.getRow() + direction[0];
-            int y = position.getColumn() + direction[1];
-            if (x > 8 || x < 1 || y > 8 || y < 1) { continue; }
-            ChessPosition target = new ChessPosition(x, y);
-            ChessPiece targetPiece = board.getPiece(target);
-            if (targetPiece == null || targetPiece.getTeamColor() != teamColor) {
-                moves.add(new ChessMove(position, target, null));
-            }
+    default void addAttackMoves(Bitboard bitboard, int square, long attacks, MoveList moves) {
+        ChessGame.TeamColor teamColor = Bitboard.colorOf(bitboard.pieceAt(square));
+        long targets = attacks & ~bitboard.color(teamColor);
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(PackedMove.encode(square, target));
         }
     }
-}
\ No newline at end of file
+}
@@ -1,21 +1,12 @@
 package chess.piececalculators;
 
-import chess.ChessBoard;
-import chess.ChessMove;
-import chess.ChessPosition;
-import chess.ChessPiece;
-import chess.ChessGame;
-
-import java.util.ArrayList;
-import java.util.Collection;
+import chess.Bitboard;
+import chess.MoveList;
 
 public class QueenMovesCalculator implements PieceMovesCalculator {
 
     @Override
-    public Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> moves = new ArrayList<>();
-        int[][] directions = {{0,1},{0,-1},{1,0},{-1,0},{1,1},{1,-1},{-1,1},{-1,-1}};
-        addSlidingMoves(moves, board, position, directions);
-        return moves;
+    public void addMoves(Bitboard bitboard, int square, MoveList moves) {
+        addAttackMoves(bitboard, square, AttackTables.queenAttacks(square, bitboard.occupied()), moves);
     }
-}
\ No newline at end of file
+}
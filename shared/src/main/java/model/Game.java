@@ -3,4 +3,9 @@ package model;
 import chess.ChessGame;
 
 public record Game(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+
+    /**
+     * The username holding a seat played by the server's engine
+     */
+    public static final String COMPUTER = "computer";
 }
@@ -2,5 +2,12 @@ package request;
 
 import chess.ChessGame;
 
-public record JoinRequest(ChessGame.TeamColor playerColor, int gameID, String authToken) {
+/**
+ * @param vsComputer whether the other seat should be taken by the computer
+ */
+public record JoinRequest(ChessGame.TeamColor playerColor, int gameID, String authToken, boolean vsComputer) {
+
+    public JoinRequest(ChessGame.TeamColor playerColor, int gameID, String authToken) {
+        this(playerColor, gameID, authToken, false);
+    }
 }
@@ -0,0 +1,21 @@
+package websocket.commands;
+
+/**
+ * Asks the server to analyze the current position of a game, sending back the
+ * best lines as the analysis deepens until it ends or the position changes
+ */
+public class AnalyzeCommand extends UserGameCommand {
+    /**
+     * How many of the best moves to send a line for
+     */
+    public final int lines;
+
+    public AnalyzeCommand(String authToken, Integer gameID, int lines) {
+        super(CommandType.ANALYZE, authToken, gameID);
+        this.lines = lines;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+}
@@ -0,0 +1,28 @@
+package websocket.messages;
+
+/**
+ * Tells a client an analysis it asked for is over. No more analysis messages
+ * for it follow.
+ */
+public class AnalysisEndMessage extends ServerMessage {
+    public final Integer gameID;
+    /**
+     * Whether the analysis was stopped early, because the position changed or
+     * the client asked, rather than running to its limit
+     */
+    public final boolean cancelled;
+
+    public AnalysisEndMessage(Integer gameID, boolean cancelled) {
+        super(ServerMessageType.ANALYSIS_END);
+        this.gameID = gameID;
+        this.cancelled = cancelled;
+    }
+
+    public Integer getGameID() {
+        return gameID;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
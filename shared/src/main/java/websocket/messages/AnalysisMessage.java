@@ -0,0 +1,77 @@
+package websocket.messages;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * The best lines a running analysis has found, sent again every time it searches
+ * a ply deeper
+ */
+public class AnalysisMessage extends ServerMessage {
+    public final Integer gameID;
+    public final int depth;
+    public final long nodes;
+    /**
+     * The lines found, best first
+     */
+    public final List<Line> lines;
+
+    public AnalysisMessage(Integer gameID, int depth, long nodes, List<Line> lines) {
+        super(ServerMessageType.ANALYSIS);
+        this.gameID = gameID;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.lines = lines;
+    }
+
+    public Integer getGameID() {
+        return gameID;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    public static class Line {
+        /**
+         * The score in centipawns from white's side
+         */
+        public final int score;
+        /**
+         * The number of moves to a forced mate, positive when white mates and
+         * negative when black does, or null if there is none
+         */
+        public final Integer mate;
+        /**
+         * The expected play, starting with the move the line is for
+         */
+        public final List<ChessMove> moves;
+
+        public Line(int score, Integer mate, List<ChessMove> moves) {
+            this.score = score;
+            this.mate = mate;
+            this.moves = moves;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public Integer getMate() {
+            return mate;
+        }
+
+        public List<ChessMove> getMoves() {
+            return moves;
+        }
+    }
+}
@@ -4,11 +4,23 @@ import chess.ChessGame;
 
 public class LoadGameMessage extends ServerMessage {
     public final ChessGame game;
+    /**
+     * The static evaluation of the position in centipawns from white's side, for
+     * observers' evaluation bars, or null if the server did not evaluate it
+     */
+    public final Integer evaluation;
     public LoadGameMessage(ChessGame game) {
+        this(game, null);
+    }
+    public LoadGameMessage(ChessGame game, Integer evaluation) {
         super(ServerMessageType.LOAD_GAME);
         this.game = game;
+        this.evaluation = evaluation;
     }
     public ChessGame getGame() {
         return game;
     }
+    public Integer getEvaluation() {
+        return evaluation;
+    }
 }
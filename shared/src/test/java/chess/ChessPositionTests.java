@@ -0,0 +1,29 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessPositionTests {
+
+    @Test
+    public void jsonReadsBackSharedInstances() {
+        Gson gson = new Gson();
+        ChessMove move = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.QUEEN);
+        ChessMove restored = gson.fromJson(gson.toJson(move), ChessMove.class);
+        assertEquals(move, restored);
+        assertSame(ChessPosition.of(7, 1), restored.getStartPosition());
+        assertSame(ChessPosition.of(8, 1), restored.getEndPosition());
+        assertEquals("{\"row\":7,\"col\":1}", gson.toJson(ChessPosition.of(7, 1)));
+    }
+
+    @Test
+    public void hashCodeIsTheSquareIndex() {
+        for (int square = 0; square < 64; square++) {
+            ChessPosition position = Bitboard.position(square);
+            assertEquals(square, position.hashCode());
+            assertEquals(position.hashCode(), new ChessPosition(position.getRow(), position.getColumn()).hashCode());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.play;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DrawTests {
+
+    @Test
+    public void threefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "g1f3", "g8f6", "f3g1", "f6g8");
+        assertFalse(game.isThreefoldRepetition());
+        play(game, "g1f3", "g8f6", "f3g1");
+        assertFalse(game.isThreefoldRepetition());
+        play(game, "f6g8");
+        assertTrue(game.isThreefoldRepetition());
+
+        game.undoMove();
+        assertFalse(game.isThreefoldRepetition());
+    }
+
+    @Test
+    public void repetitionNeedsSameCastlingRights() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("r3k3/8/8/8/8/8/8/4K2R w Kq - 0 1");
+        // The first rook move gives up white's right to castle, so only two of
+        // the positions with the rook on h1 can match
+        play(game, "h1h2", "a8a7", "h2h1", "a7a8", "h1h2", "a8a7", "h2h1", "a7a8");
+        assertFalse(game.isThreefoldRepetition());
+        play(game, "h1h2", "a8a7", "h2h1", "a7a8");
+        assertTrue(game.isThreefoldRepetition());
+    }
+
+    @Test
+    public void pawnMoveResetsRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "g1f3", "g8f6", "f3g1", "f6g8", "e2e3", "e7e6");
+        play(game, "g1f3", "g8f6", "f3g1", "f6g8");
+        assertFalse(game.isThreefoldRepetition());
+        assertEquals(4, game.getHalfmoveClock());
+    }
+
+    @Test
+    public void fiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K3 w - - 98 80");
+        assertFalse(game.isFiftyMoveDraw());
+        play(game, "a1a2");
+        assertFalse(game.isFiftyMoveDraw());
+        play(game, "e8e7");
+        assertTrue(game.isFiftyMoveDraw());
+        assertEquals("8/4k3/8/8/8/8/R7/4K3 w - - 100 81", game.toFen());
+
+        game.undoMove();
+        assertEquals(99, game.getHalfmoveClock());
+        assertEquals(80, game.getFullmoveNumber());
+    }
+
+    @Test
+    public void insufficientMaterial() {
+        assertTrue(ChessGame.fromFen("8/8/4k3/8/8/3K4/8/8 w").isInsufficientMaterial());
+        assertTrue(ChessGame.fromFen("8/8/4k3/8/8/3KN3/8/8 w").isInsufficientMaterial());
+        assertTrue(ChessGame.fromFen("8/8/4kb2/8/8/3K4/8/8 w").isInsufficientMaterial());
+        // Bishops on c1 and f8 are both on dark squares
+        assertTrue(ChessGame.fromFen("5b2/8/4k3/8/8/3K4/8/2B5 w").isInsufficientMaterial());
+
+        assertFalse(new ChessGame().isInsufficientMaterial());
+        assertFalse(ChessGame.fromFen("8/8/4k3/8/8/3K4/4P3/8 w").isInsufficientMaterial());
+        assertFalse(ChessGame.fromFen("8/8/4k3/8/8/3K4/8/R7 w").isInsufficientMaterial());
+        assertFalse(ChessGame.fromFen("4b3/8/4k3/8/8/3K4/8/2B5 w").isInsufficientMaterial());
+        assertFalse(ChessGame.fromFen("8/8/4kn2/8/8/3K4/8/2B5 w").isInsufficientMaterial());
+        assertFalse(ChessGame.fromFen("8/8/4k3/8/8/3K4/8/1NN5 w").isInsufficientMaterial());
+    }
+
+    @Test
+    public void captureLeavesInsufficientMaterial() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("8/8/4k3/8/8/3K4/4r3/8 w - - 0 1");
+        assertFalse(game.isInsufficientMaterial());
+        play(game, "d3e2");
+        assertTrue(game.isInsufficientMaterial());
+        game.undoMove();
+        assertFalse(game.isInsufficientMaterial());
+    }
+}
@@ -0,0 +1,63 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FenTests {
+
+    @Test
+    public void startPositionMatchesNewGame() {
+        ChessGame game = ChessGame.fromFen(Perft.START_FEN);
+        assertEquals(new ChessGame(), game);
+        assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+    }
+
+    @Test
+    public void roundTrip() {
+        String fen = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 b - - 0 1";
+        ChessGame game = ChessGame.fromFen(fen);
+        assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        assertEquals(ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN),
+                game.getBoard().getPiece(ChessPosition.of(7, 5)));
+        assertEquals(fen, game.toFen());
+    }
+
+    @Test
+    public void writesAfterMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        assertTrue(game.toFen().startsWith("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b "));
+    }
+
+    @Test
+    public void castlingAndEnPassant() {
+        String fen = "r3k2r/8/8/3pP3/8/8/8/R3K2R w Kq d6 0 1";
+        ChessGame game = ChessGame.fromFen(fen);
+        assertEquals(Castling.WHITE_KINGSIDE | Castling.BLACK_QUEENSIDE, game.getCastlingRights());
+        assertEquals(Bitboard.square(6, 4), game.getEnPassantSquare());
+        assertEquals(fen, game.toFen());
+
+        // No white pawn can take on c6, so the square is dropped
+        assertEquals("r3k2r/8/8/3pP3/8/8/8/R3K2R w Kq - 0 1",
+                ChessGame.fromFen("r3k2r/8/8/3pP3/8/8/8/R3K2R w Kq c6 0 1").toFen());
+    }
+
+    @Test
+    public void placementOnly() {
+        ChessGame game = ChessGame.fromFen("8/8/8/4k3/8/8/8/4K3");
+        assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+        assertEquals(ChessPosition.of(5, 5), game.kingPosition(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    public void rejectsMalformedPositions() {
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8 w"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("9/8/8/8/8/8/8/8 w"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/7x w"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 x"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("ppppppppp/8/8/8/8/8/8/8 w"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 w X"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 w - e3"));
+    }
+}
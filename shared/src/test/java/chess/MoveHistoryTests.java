@@ -0,0 +1,157 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static chess.TestMoves.move;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveHistoryTests {
+
+    @Test
+    public void undoOnNewGame() {
+        ChessGame game = new ChessGame();
+        assertNull(game.undoMove());
+        assertNull(game.redoMove());
+    }
+
+    @Test
+    public void undoRestoresCapture() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move("e2e4"));
+        game.makeMove(move("d7d5"));
+        ChessGame before = new ChessGame(game);
+        game.makeMove(move("e4d5"));
+
+        assertEquals(move("e4d5"), game.undoMove());
+        assertEquals(before, game);
+        assertEquals(before.positionKey(), game.positionKey());
+        assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+        assertEquals(ChessGame.TeamColor.BLACK, game.getBoard().getPiece(ChessPosition.of(5, 4)).getTeamColor());
+    }
+
+    @Test
+    public void undoRestoresPromotedPawn() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("1n5k/P7/8/8/8/8/8/K7 w - - 0 1");
+        ChessGame before = new ChessGame(game);
+        game.makeMove(move("a7b8n"));
+        assertEquals(ChessPiece.PieceType.KNIGHT, game.getBoard().getPiece(ChessPosition.of(8, 2)).getPieceType());
+
+        game.undoMove();
+        assertEquals(before, game);
+        assertEquals(ChessPiece.PieceType.PAWN, game.getBoard().getPiece(ChessPosition.of(7, 1)).getPieceType());
+        assertEquals(ChessGame.TeamColor.BLACK, game.getBoard().getPiece(ChessPosition.of(8, 2)).getTeamColor());
+    }
+
+    @Test
+    public void redoReplaysUndoneMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move("g1f3"));
+        game.makeMove(move("g8f6"));
+        ChessGame after = new ChessGame(game);
+
+        game.undoMove();
+        game.undoMove();
+        assertEquals(new ChessGame(), game);
+        assertEquals(move("g1f3"), game.redoMove());
+        assertEquals(move("g8f6"), game.redoMove());
+        assertNull(game.redoMove());
+        assertEquals(after, game);
+        assertEquals(List.of(move("g1f3"), move("g8f6")), game.moveHistory());
+    }
+
+    @Test
+    public void newMoveDiscardsRedo() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move("e2e4"));
+        game.undoMove();
+        game.makeMove(move("d2d4"));
+        assertNull(game.redoMove());
+        assertEquals(List.of(move("d2d4")), game.moveHistory());
+    }
+
+    @Test
+    public void historySurvivesJson() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move("e2e4"));
+        game.makeMove(move("e7e5"));
+        game.setGameOver(true);
+
+        Gson gson = new Gson();
+        ChessGame restored = gson.fromJson(gson.toJson(game), ChessGame.class);
+        assertEquals(game.moveHistory(), restored.moveHistory());
+        restored.undoMove();
+        assertFalse(restored.isGameOver());
+        assertEquals(List.of(move("e2e4")), restored.moveHistory());
+    }
+
+    @Test
+    public void jsonHoldsOnlyPlayedMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move("e2e4"));
+        game.makeMove(move("e7e5"));
+        game.makeMove(move("g1f3"));
+        game.undoMove();
+
+        Gson gson = new Gson();
+        JsonObject json = gson.toJsonTree(game).getAsJsonObject();
+        JsonObject history = json.getAsJsonObject("history");
+        assertEquals(3, history.getAsJsonArray("entries").size());
+        assertEquals(3, history.getAsJsonArray("keys").size());
+
+        ChessGame restored = gson.fromJson(json, ChessGame.class);
+        assertEquals(game.moveHistory(), restored.moveHistory());
+        restored.redoMove();
+        game.redoMove();
+        assertEquals(game, restored);
+        assertEquals(game.moveHistory(), restored.moveHistory());
+
+        // Games stored with the whole arrays, spare room included, still read back
+        history.getAsJsonArray("entries").add(0L);
+        history.getAsJsonArray("keys").add(0L);
+        history.addProperty("limit", 3);
+        ChessGame old = gson.fromJson(json, ChessGame.class);
+        assertEquals(game.moveHistory().subList(0, 2), old.moveHistory());
+        old.redoMove();
+        assertEquals(game, old);
+        assertNull(old.redoMove());
+    }
+
+    @Test
+    public void jsonWithoutCastlingRightsInfersThem() {
+        ChessGame game = ChessGame.fromFen("r3k3/8/8/8/8/8/8/4K2R w Kq - 0 1");
+        Gson gson = new Gson();
+        JsonObject json = gson.toJsonTree(game).getAsJsonObject();
+
+        // Games stored before the castling rights were kept have no field for them
+        json.remove("castlingRights");
+        ChessGame old = gson.fromJson(json, ChessGame.class);
+        assertEquals(game.getCastlingRights(), old.getCastlingRights());
+        assertEquals(game, old);
+        assertEquals(game.positionKey(), old.positionKey());
+        assertEquals(Castling.ALL, gson.fromJson(gson.toJson(new ChessGame()), ChessGame.class).getCastlingRights());
+    }
+
+    @Test
+    public void undoRestoresCastlingAndEnPassant() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("r3k2r/8/8/8/1p6/8/P7/R3K2R w KQkq - 0 1");
+        game.makeMove(move("a2a4"));
+        ChessGame afterPush = new ChessGame(game);
+        assertEquals(Bitboard.square(3, 1), game.getEnPassantSquare());
+
+        game.makeMove(move("b4a3"));
+        assertNull(game.getBoard().getPiece(ChessPosition.of(4, 1)));
+        game.makeMove(move("e1c1"));
+        assertEquals("r3k2r/8/8/8/8/p7/8/2KR3R b kq - 1 2", game.toFen());
+
+        game.undoMove();
+        game.undoMove();
+        assertEquals(afterPush, game);
+        assertEquals(afterPush.positionKey(), game.positionKey());
+        game.undoMove();
+        assertEquals(ChessGame.fromFen("r3k2r/8/8/8/1p6/8/P7/R3K2R w KQkq - 0 1"), game);
+    }
+}
@@ -0,0 +1,82 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Node counts for standard perft positions, from the Chess Programming Wiki.
+ */
+public class PerftTests {
+
+    @Test
+    public void startPosition() {
+        ChessGame game = ChessGame.fromFen(Perft.START_FEN);
+        assertEquals(20, Perft.perft(game, 1));
+        assertEquals(400, Perft.perft(game, 2));
+        assertEquals(8902, Perft.perft(game, 3));
+        assertEquals(197281, Perft.perft(game, 4));
+        assertEquals(4865609, Perft.perft(game, 5));
+    }
+
+    @Test
+    public void rookAndPawnEndgame() {
+        ChessGame game = ChessGame.fromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+        assertEquals(14, Perft.perft(game, 1));
+        assertEquals(191, Perft.perft(game, 2));
+        assertEquals(2812, Perft.perft(game, 3));
+        assertEquals(43238, Perft.perft(game, 4));
+        assertEquals(674624, Perft.perft(game, 5));
+    }
+
+    @Test
+    public void kiwipete() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        assertEquals(48, Perft.perft(game, 1));
+        assertEquals(2039, Perft.perft(game, 2));
+        assertEquals(97862, Perft.perft(game, 3));
+        assertEquals(4085603, Perft.perft(game, 4));
+    }
+
+    @Test
+    public void castlingAndPromotionTraps() {
+        ChessGame game = ChessGame.fromFen("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1");
+        assertEquals(6, Perft.perft(game, 1));
+        assertEquals(264, Perft.perft(game, 2));
+        assertEquals(9467, Perft.perft(game, 3));
+        assertEquals(422333, Perft.perft(game, 4));
+    }
+
+    @Test
+    public void discoveredChecks() {
+        ChessGame game = ChessGame.fromFen("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8");
+        assertEquals(44, Perft.perft(game, 1));
+        assertEquals(1486, Perft.perft(game, 2));
+        assertEquals(62379, Perft.perft(game, 3));
+    }
+
+    @Test
+    public void promotions() {
+        ChessGame game = ChessGame.fromFen("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1");
+        assertEquals(24, Perft.perft(game, 1));
+        assertEquals(496, Perft.perft(game, 2));
+        assertEquals(9483, Perft.perft(game, 3));
+        assertEquals(182838, Perft.perft(game, 4));
+    }
+
+    @Test
+    public void middlegame() {
+        ChessGame game = ChessGame.fromFen("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+        assertEquals(46, Perft.perft(game, 1));
+        assertEquals(2079, Perft.perft(game, 2));
+        assertEquals(89890, Perft.perft(game, 3));
+    }
+
+    @Test
+    public void perftDoesNotChangeGame() {
+        ChessGame game = new ChessGame();
+        ChessGame copy = new ChessGame(game);
+        Perft.perft(game, 3);
+        assertEquals(copy, game);
+    }
+}
@@ -0,0 +1,47 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionCodecTests {
+
+    @Test
+    public void startPositionRoundTrip() {
+        ChessGame game = new ChessGame();
+        byte[] bytes = PositionCodec.encode(game);
+        assertEquals(27, bytes.length);
+        assertEquals(game, PositionCodec.decode(bytes));
+    }
+
+    @Test
+    public void keepsSideToMoveAndGameOver() {
+        ChessGame game = ChessGame.fromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 0 1");
+        game.setGameOver(true);
+        ChessGame decoded = PositionCodec.decode(PositionCodec.encode(game));
+        assertEquals(game, decoded);
+        assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+        assertTrue(decoded.isGameOver());
+    }
+
+    @Test
+    public void oddPieceCount() {
+        ChessGame game = ChessGame.fromFen("8/8/8/4k3/8/8/3Q4/4K3 w - - 0 1");
+        byte[] bytes = PositionCodec.encode(game);
+        assertEquals(13, bytes.length);
+        assertEquals(game, PositionCodec.decode(bytes));
+    }
+
+    @Test
+    public void rejectsCorruptBytes() {
+        byte[] bytes = PositionCodec.encode(new ChessGame());
+        assertThrows(IllegalArgumentException.class, () -> PositionCodec.decode(new byte[3]));
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+        assertThrows(IllegalArgumentException.class, () -> PositionCodec.decode(truncated));
+        byte[] badVersion = bytes.clone();
+        badVersion[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> PositionCodec.decode(badVersion));
+    }
+}
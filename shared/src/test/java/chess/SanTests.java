@@ -0,0 +1,49 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SanTests {
+
+    @Test
+    public void pawnAndPieceMoves() {
+        ChessGame game = new ChessGame();
+        assertEquals(PackedMove.encode(Bitboard.square(2, 5), Bitboard.square(4, 5)), game.parseSan("e4"));
+        assertEquals(PackedMove.encode(Bitboard.square(1, 7), Bitboard.square(3, 6)), game.parseSan("Nf3"));
+        assertThrows(IllegalArgumentException.class, () -> game.parseSan("e5"));
+        assertThrows(IllegalArgumentException.class, () -> game.parseSan("Ke2"));
+        assertThrows(IllegalArgumentException.class, () -> game.parseSan("Z9"));
+    }
+
+    @Test
+    public void playsAGame() {
+        ChessGame game = new ChessGame();
+        for (String san : "e4 e5 Nf3 Nc6 Bb5 a6 Ba4 Nf6 O-O Be7 Re1 b5 Bb3 d6 c3 O-O h3".split(" ")) {
+            game.play(game.parseSan(san));
+        }
+        assertEquals("r1bq1rk1/2p1bppp/p1np1n2/1p2p3/4P3/1BP2N1P/PP1P1PP1/RNBQR1K1 b - - 0 9", game.toFen());
+    }
+
+    @Test
+    public void disambiguation() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/4K3/R6R w - - 0 1");
+        assertEquals(PackedMove.encode(Bitboard.square(1, 1), Bitboard.square(1, 4)), game.parseSan("Rad1"));
+        assertEquals(PackedMove.encode(Bitboard.square(1, 8), Bitboard.square(1, 4)), game.parseSan("Rhxd1"));
+        assertThrows(IllegalArgumentException.class, () -> game.parseSan("Rd1"));
+
+        ChessGame ranks = ChessGame.fromFen("4k3/R7/8/8/8/8/R7/4K3 w - - 0 1");
+        assertEquals(PackedMove.encode(Bitboard.square(2, 1), Bitboard.square(4, 1)), ranks.parseSan("R2a4"));
+    }
+
+    @Test
+    public void specialMoves() {
+        ChessGame game = ChessGame.fromFen("r3k2r/1P6/8/3pP3/8/8/8/R3K2R w KQkq d6 0 1");
+        assertEquals(PackedMove.CASTLE, PackedMove.flags(game.parseSan("O-O-O")));
+        assertEquals(Bitboard.square(1, 7), PackedMove.to(game.parseSan("0-0+")));
+        assertEquals(PackedMove.EN_PASSANT, PackedMove.flags(game.parseSan("exd6")));
+        assertEquals(ChessPiece.PieceType.QUEEN, PackedMove.promotion(game.parseSan("bxa8=Q#")));
+        assertEquals(ChessPiece.PieceType.KNIGHT, PackedMove.promotion(game.parseSan("b8N")));
+        assertThrows(IllegalArgumentException.class, () -> game.parseSan("b8"));
+    }
+}
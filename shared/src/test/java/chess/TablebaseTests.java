@@ -0,0 +1,121 @@
+package chess;
+
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TablebaseTests {
+
+    private static Tablebases tablebases;
+
+    @BeforeAll
+    public static void generate() {
+        tablebases = new Tablebases();
+        // KPK promotes into KQK and KRK, so those are built first
+        tablebases.generate("KPK");
+    }
+
+    private static TablebaseResult probe(String fen) {
+        return ChessGame.fromFen(fen).probeTablebases(tablebases);
+    }
+
+    @Test
+    public void dependenciesAreGenerated() {
+        assertEquals(List.of("KQK", "KRK", "KPK"), tablebases.names());
+    }
+
+    @Test
+    public void longestMatesMatchKnownValues() {
+        // Mate in 10 with king and queen, and in 16 with king and rook
+        assertEquals(19, tablebases.find("KQK").longestWin());
+        assertEquals(31, tablebases.find("KRK").longestWin());
+    }
+
+    @Test
+    public void matesAndDraws() {
+        TablebaseResult mateInOne = probe("k7/8/1K6/8/8/8/7Q/8 w - - 0 1");
+        assertTrue(mateInOne.isWin());
+        assertEquals(1, mateInOne.pliesToMate());
+        assertEquals(1, mateInOne.movesToMate());
+
+        TablebaseResult mated = probe("kQ6/2K5/8/8/8/8/8/8 b - - 0 1");
+        assertTrue(mated.isLoss());
+        assertEquals(0, mated.pliesToMate());
+
+        assertTrue(probe("k7/8/1Q6/8/8/8/8/K7 b - - 0 1").draw(), "stalemate");
+        assertTrue(probe("k7/8/8/8/8/8/8/K6b w - - 0 1").draw(), "too little material");
+        assertNull(probe("k7/8/8/8/8/8/8/KQ5r w - - 0 1"), "no table");
+        assertNull(probe("r3k3/8/8/8/8/8/8/4K3 b q - 0 1"), "castling still possible");
+    }
+
+    @Test
+    public void kingAndPawnEndings() {
+        // The king in front of its pawn on the sixth rank wins whoever moves
+        assertTrue(probe("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1").isWin());
+        assertTrue(probe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1").isLoss());
+        // With the opposition the defender holds
+        assertTrue(probe("8/8/8/8/8/4k3/4P3/4K3 w - - 0 1").draw());
+        // A rook pawn is a draw once the defender reaches the corner
+        assertTrue(probe("k7/8/8/8/8/8/P7/K7 w - - 0 1").draw());
+    }
+
+    @Test
+    public void colorsSwappedUseTheSameTable() {
+        TablebaseResult white = probe("8/8/8/3k4/8/8/2K5/5R2 w - - 0 1");
+        TablebaseResult black = probe("5r2/2k5/8/8/3K4/8/8/8 b - - 0 1");
+        assertTrue(white.isWin());
+        assertEquals(white, black);
+
+        assertEquals(probe("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1"), probe("8/8/8/8/4p3/4k3/8/4K3 b - - 0 1"));
+    }
+
+    @Test
+    public void searchPlaysTheShortestMate() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("8/8/8/3k4/8/8/2K5/5R2 w - - 0 1");
+        TablebaseResult expected = game.probeTablebases(tablebases);
+        Search search = new Search(game);
+        search.setTablebases(tablebases);
+        SearchResult result = search.search(SearchLimits.depth(2));
+        assertTrue(result.isMate());
+        assertEquals(Search.MATE - expected.pliesToMate(), result.score());
+
+        // The move found keeps the mate exactly one ply shorter
+        game.makeMove(result.bestMove());
+        TablebaseResult after = game.probeTablebases(tablebases);
+        assertTrue(after.isLoss());
+        assertEquals(expected.pliesToMate() - 1, after.pliesToMate());
+    }
+
+    @Test
+    public void savedTablesReadBackAndStaySmall(@TempDir Path directory) throws IOException {
+        tablebases.save(directory);
+        long size = Files.size(directory.resolve("KQK.tb"));
+        // 2^19 positions at five bits each
+        assertTrue(size < 340_000, "KQK.tb is " + size + " bytes");
+
+        Tablebases loaded = Tablebases.load(directory);
+        assertEquals(3, loaded.names().size());
+        for (String fen : List.of("8/8/8/3k4/8/8/2K5/5R2 w - - 0 1", "4k3/8/4K3/4P3/8/8/8/8 b - - 0 1",
+                "8/8/8/8/4p3/4k3/8/4K3 b - - 0 1", "k7/8/1K6/8/8/8/7Q/8 w - - 0 1")) {
+            ChessGame game = ChessGame.fromFen(fen);
+            assertEquals(game.probeTablebases(tablebases), game.probeTablebases(loaded), fen);
+        }
+    }
+
+    @Test
+    public void unsupportedTablesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> tablebases.generate("KQRKR"));
+        assertThrows(IllegalArgumentException.class, () -> tablebases.generate("KNNK"));
+        assertThrows(IllegalArgumentException.class, () -> tablebases.generate("QK"));
+    }
+}
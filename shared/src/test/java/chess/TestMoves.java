@@ -0,0 +1,35 @@
+package chess;
+
+/**
+ * Moves for tests, written the way engines print them: the start and end squares,
+ * then the promotion piece if any, as in "e2e4" or "a7b8n".
+ */
+public final class TestMoves {
+
+    private TestMoves() {
+    }
+
+    public static ChessMove move(String text) {
+        ChessPiece.PieceType promotion = text.length() > 4 ? switch (text.charAt(4)) {
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            default -> throw new IllegalArgumentException("Unknown promotion piece in " + text);
+        } : null;
+        return new ChessMove(square(text, 0), square(text, 2), promotion);
+    }
+
+    /**
+     * Plays each move in turn, checking that it is legal
+     */
+    public static void play(ChessGame game, String... moves) throws InvalidMoveException {
+        for (String move : moves) {
+            game.makeMove(move(move));
+        }
+    }
+
+    private static ChessPosition square(String text, int offset) {
+        return ChessPosition.of(text.charAt(offset + 1) - '0', text.charAt(offset) - 'a' + 1);
+    }
+}
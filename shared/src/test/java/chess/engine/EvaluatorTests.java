@@ -0,0 +1,151 @@
+package chess.engine;
+
+import chess.Bitboard;
+import chess.ChessGame;
+import chess.MoveList;
+import chess.PieceSquareTables;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvaluatorTests {
+
+    /**
+     * Flips the board top to bottom and swaps the colors of every piece
+     */
+    private static String mirror(String fen) {
+        String[] fields = fen.split(" ");
+        String[] rows = fields[0].split("/");
+        StringBuilder placement = new StringBuilder();
+        for (int i = rows.length - 1; i >= 0; i--) {
+            placement.append(swapCase(rows[i]));
+            if (i > 0) {
+                placement.append('/');
+            }
+        }
+        String turn = fields[1].equals("w") ? "b" : "w";
+        String castling = fields[2].equals("-") ? "-" : swapCase(fields[2]);
+        String enPassant = fields[3].equals("-") ? "-"
+                : fields[3].charAt(0) + String.valueOf((char) ('1' + '8' - fields[3].charAt(1)));
+        return String.join(" ", placement, turn, castling, enPassant, fields[4], fields[5]);
+    }
+
+    private static String swapCase(String text) {
+        StringBuilder swapped = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            swapped.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+        return swapped.toString();
+    }
+
+    @Test
+    public void startPositionIsEven() {
+        ChessGame game = new ChessGame();
+        assertEquals(0, Evaluator.whiteScore(game));
+        assertEquals(PieceSquareTables.MAX_PHASE, game.getBoard().getBitboard().phase());
+    }
+
+    @Test
+    public void mirroredPositionsScoreOpposite() {
+        ChessGame game = ChessGame.fromFen("r1bqk2r/pp3ppp/2n1pn2/3p4/1bPP4/2N2N2/PP2BPPP/R2QKB1R w KQkq - 0 7");
+        ChessGame mirrored = ChessGame.fromFen(mirror(game.toFen()));
+        assertEquals(Evaluator.whiteScore(game), -Evaluator.whiteScore(mirrored));
+        assertEquals(Evaluator.evaluate(game), Evaluator.evaluate(mirrored));
+    }
+
+    @Test
+    public void incrementalScoresMatchFreshBoard() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        Random random = new Random(7);
+        MoveList moves = new MoveList();
+        for (int ply = 0; ply < 60; ply++) {
+            moves.clear();
+            game.generateMoves(moves);
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.play(moves.get(random.nextInt(moves.size())));
+            Bitboard played = game.getBoard().getBitboard();
+            Bitboard fresh = ChessGame.fromFen(game.toFen()).getBoard().getBitboard();
+            assertEquals(fresh.psqt(), played.psqt());
+            assertEquals(fresh.phase(), played.phase());
+        }
+        while (game.undo() != 0) {
+            Bitboard played = game.getBoard().getBitboard();
+            Bitboard fresh = ChessGame.fromFen(game.toFen()).getBoard().getBitboard();
+            assertEquals(fresh.psqt(), played.psqt());
+        }
+    }
+
+    @Test
+    public void passedPawnIsWorthMoreInEndgame() {
+        ChessGame passed = ChessGame.fromFen("4k3/8/8/3P4/8/8/8/4K3 w - - 0 1");
+        ChessGame blocked = ChessGame.fromFen("4k3/3p4/8/3P4/8/8/8/4K3 w - - 0 1");
+        assertTrue(Evaluator.whiteScore(passed) > Evaluator.whiteScore(blocked) + 100);
+    }
+
+    @Test
+    public void pawnStructurePenalties() {
+        ChessGame healthy = ChessGame.fromFen("4k3/ppp5/8/8/8/8/PPP5/4K3 w - - 0 1");
+        ChessGame broken = ChessGame.fromFen("4k3/ppp5/8/8/8/P7/P1P5/4K3 w - - 0 1");
+        int healthyScore = Evaluator.pawnStructure(healthy.getBoard().getBitboard());
+        int brokenScore = Evaluator.pawnStructure(broken.getBoard().getBitboard());
+        assertEquals(0, healthyScore);
+        assertTrue(PieceSquareTables.endgame(brokenScore) < 0);
+    }
+
+    @Test
+    public void shelteredKingIsSafer() {
+        ChessGame sheltered = ChessGame.fromFen("r1bq1rk1/pppp1ppp/2n2n2/4p3/4P3/2N2N2/PPPP1PPP/R1BQ1RK1 w - - 0 1");
+        ChessGame exposed = ChessGame.fromFen("r1bq1rk1/pppp1ppp/2n2n2/4p3/4P3/2N2N2/PPPP4/R1BQ1RK1 w - - 0 1");
+        ChessGame exposedWithPawns = ChessGame.fromFen("r1bq1rk1/pppp1ppp/2n2n2/4p3/4P3/P1N2N1P/PPPP4/R1BQ1RK1 w - - 0 1");
+        assertTrue(Evaluator.whiteScore(sheltered) > Evaluator.whiteScore(exposed));
+        // Same material both times, so the difference is the shelter
+        assertTrue(Evaluator.whiteScore(sheltered) > Evaluator.whiteScore(exposedWithPawns));
+    }
+
+    @Test
+    public void cachedEvaluationMatchesUncached() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        // A tiny cache so slots are overwritten and revisited often
+        PawnCache cache = new PawnCache(4);
+        Random random = new Random(11);
+        MoveList moves = new MoveList();
+        for (int ply = 0; ply < 80; ply++) {
+            moves.clear();
+            game.generateMoves(moves);
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.play(moves.get(random.nextInt(moves.size())));
+            assertEquals(Evaluator.whiteScore(game), Evaluator.whiteScore(game, cache));
+            assertEquals(Evaluator.whiteScore(game), Evaluator.whiteScore(game, cache));
+
+            Bitboard played = game.getBoard().getBitboard();
+            Bitboard fresh = ChessGame.fromFen(game.toFen()).getBoard().getBitboard();
+            assertEquals(fresh.pawnKey(), played.pawnKey());
+        }
+    }
+
+    @Test
+    public void pawnKeyIgnoresOtherPieces() {
+        ChessGame start = new ChessGame();
+        ChessGame knightOut = ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/8/5N2/PPPPPPPP/RNBQKB1R b KQkq - 1 1");
+        ChessGame pawnPushed = ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+        long key = start.getBoard().getBitboard().pawnKey();
+        assertEquals(key, knightOut.getBoard().getBitboard().pawnKey());
+        assertNotEquals(key, pawnPushed.getBoard().getBitboard().pawnKey());
+        assertEquals(0L, ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K3 w - - 0 1").getBoard().getBitboard().pawnKey());
+    }
+
+    @Test
+    public void cacheFindsPassedPawns() {
+        ChessGame game = ChessGame.fromFen("4k3/1p6/8/3P4/8/6p1/6P1/4K3 w - - 0 1");
+        long passed = Evaluator.passedPawns(game.getBoard().getBitboard());
+        // d5 is passed; b7 is passed for black; the g pawns block each other
+        assertEquals((1L << 35) | (1L << 49), passed);
+        assertEquals(1 << 10, new PawnCache(1500).capacity());
+    }
+}
@@ -0,0 +1,113 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningBookTests {
+
+    private static final String PGN = """
+            [Event "First"]
+            [White "A"]
+            [Black "B"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 {the usual} Nc6 3. Bb5 (3. Bc4 Bc5) a6 $1 4. Ba4 1-0
+
+            [Event "Second"]
+            [Result "1/2-1/2"]
+
+            1. e4 c5 2. Nf3 d6; a comment to the end of the line
+            3. d4 cxd4 1/2-1/2
+
+            [Event "Third"]
+            [Result "0-1"]
+
+            1.d4 d5 2.c4 e6 0-1
+
+            [Event "Broken"]
+            [Result "*"]
+
+            1. e4 e5 2. Qxf7 Ke7 *
+            """;
+
+    private static OpeningBook build(Path dir, int plies) throws IOException {
+        BookBuilder builder = new BookBuilder(plies);
+        assertEquals(4, builder.addGames(new StringReader(PGN)));
+        Path file = dir.resolve("book.bin");
+        int entries = builder.write(file);
+        assertEquals(OpeningBook.HEADER_BYTES + (long) entries * OpeningBook.ENTRY_BYTES, Files.size(file));
+        OpeningBook book = OpeningBook.open(file);
+        assertEquals(entries, book.size());
+        return book;
+    }
+
+    @Test
+    public void heaviestMoveFirst(@TempDir Path dir) throws IOException {
+        OpeningBook book = build(dir, 20);
+        ChessGame game = new ChessGame();
+        // e4 scores 2 + 1 + 1, while d4 lost its only game and is left out
+        assertEquals(game.parseSan("e4"), book.bestMove(game));
+
+        game.play(game.parseSan("e4"));
+        // e5 lost once and was played once more with no result, tying the drawn c5
+        assertTrue(Set.of(game.parseSan("e5"), game.parseSan("c5")).contains(book.bestMove(game)));
+        game.play(game.parseSan("e5"));
+        game.play(game.parseSan("Nf3"));
+        game.play(game.parseSan("Nc6"));
+        assertEquals(game.parseSan("Bb5"), book.bestMove(game));
+
+        ChessGame unknown = ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        assertEquals(PackedMove.NONE, book.bestMove(unknown));
+        assertEquals(PackedMove.NONE, book.pickMove(unknown, new Random(1)));
+    }
+
+    @Test
+    public void picksByWeight(@TempDir Path dir) throws IOException {
+        OpeningBook book = build(dir, 20);
+        ChessGame game = new ChessGame();
+        game.play(game.parseSan("e4"));
+        Set<Integer> picked = new HashSet<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            picked.add(book.pickMove(game, random));
+        }
+        assertEquals(Set.of(game.parseSan("e5"), game.parseSan("c5")), picked);
+    }
+
+    @Test
+    public void stopsAtPlyLimitAndBadMoves(@TempDir Path dir) throws IOException {
+        OpeningBook book = build(dir, 2);
+        ChessGame game = new ChessGame();
+        game.play(game.parseSan("e4"));
+        game.play(game.parseSan("e5"));
+        assertEquals(PackedMove.NONE, book.bestMove(game));
+
+        OpeningBook full = build(dir, 20);
+        // The broken game's Qxf7 is not legal, so nothing after 2... is in the book from it
+        assertNotEquals(PackedMove.NONE, full.bestMove(game));
+        game.play(game.parseSan("Nf3"));
+        game.play(game.parseSan("Nc6"));
+        assertEquals(game.parseSan("Bb5"), full.bestMove(game));
+    }
+
+    @Test
+    public void rejectsOtherFiles(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("not-a-book.bin");
+        Files.write(file, new byte[24]);
+        assertThrows(IOException.class, () -> OpeningBook.open(file));
+        Files.write(file, new byte[5]);
+        assertThrows(IOException.class, () -> OpeningBook.open(file));
+    }
+}
@@ -0,0 +1,176 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static chess.TestMoves.move;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchTests {
+
+    @Test
+    public void findsMateInOne() {
+        ChessGame game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        SearchResult result = new Search(game).search(SearchLimits.depth(3));
+        assertEquals(move("a1a8"), result.bestMove());
+        assertEquals(Search.MATE - 1, result.score());
+        assertTrue(result.isMate());
+    }
+
+    @Test
+    public void findsMateInTwo() {
+        // 1. Kb6 leaves only Kb8, then 2. Rh8#
+        ChessGame game = ChessGame.fromFen("k7/8/2K5/8/8/8/8/7R w - - 0 1");
+        SearchResult result = new Search(game).search(SearchLimits.depth(5));
+        assertEquals(move("c6b6"), result.bestMove());
+        assertEquals(Search.MATE - 3, result.score());
+    }
+
+    @Test
+    public void winsHangingQueen() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        SearchResult result = new Search(game).search(SearchLimits.depth(4));
+        assertEquals(move("d2d5"), result.bestMove());
+        assertTrue(result.score() > 300);
+    }
+
+    @Test
+    public void quiescenceSeesRecapture() {
+        // Taking the defended pawn loses the queen
+        ChessGame game = ChessGame.fromFen("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1");
+        SearchResult result = new Search(game).search(SearchLimits.depth(1));
+        assertNotEquals(move("d1d5"), result.bestMove());
+    }
+
+    @Test
+    public void noMovesWhenMated() {
+        ChessGame game = ChessGame.fromFen("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1");
+        SearchResult result = new Search(game).search(SearchLimits.depth(3));
+        assertNull(result.bestMove());
+    }
+
+    @Test
+    public void respectsNodeLimitAndLeavesGameAlone() {
+        ChessGame game = new ChessGame();
+        ChessGame copy = new ChessGame(game);
+        SearchResult result = new Search(game).search(SearchLimits.nodes(20000));
+        assertNotNull(result.bestMove());
+        assertTrue(result.depth() >= 1);
+        assertTrue(result.nodes() < 40000);
+        assertEquals(copy, game);
+        assertEquals(result.bestMove(), result.principalVariation().get(0));
+    }
+
+    @Test
+    public void parallelSearchFindsMate() {
+        ChessGame game = ChessGame.fromFen("k7/8/2K5/8/8/8/8/7R w - - 0 1");
+        SearchResult result = new Search(game).search(SearchLimits.depth(5).withThreads(4));
+        assertEquals(move("c6b6"), result.bestMove());
+        assertEquals(Search.MATE - 3, result.score());
+    }
+
+    @Test
+    public void parallelSearchCountsHelperNodesAndLeavesGameAlone() {
+        ChessGame game = ChessGame.fromFen("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3");
+        ChessGame copy = new ChessGame(game);
+        SearchResult result = new Search(game).search(SearchLimits.nodes(50000).withThreads(3));
+        assertNotNull(result.bestMove());
+        assertTrue(game.validMoves(result.bestMove().getStartPosition()).contains(result.bestMove()));
+        assertTrue(result.nodes() > 50000);
+        assertEquals(copy, game);
+        assertThrows(IllegalArgumentException.class, () -> SearchLimits.depth(1).withThreads(0));
+    }
+
+    @Test
+    public void helpersRunOnASharedExecutor() throws InterruptedException {
+        ChessGame game = ChessGame.fromFen("k7/8/2K5/8/8/8/8/7R w - - 0 1");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Search search = new Search(game);
+            search.setHelperExecutor(executor);
+            assertEquals(move("c6b6"), search.search(SearchLimits.depth(5).withThreads(3)).bestMove());
+            long alone = new Search(game).search(SearchLimits.nodes(50000)).nodes();
+
+            // Helpers that ran are waited for and counted, however late they started
+            CountDownLatch started = new CountDownLatch(2);
+            Search shared = new Search(game);
+            shared.setHelperExecutor(task -> executor.execute(() -> {
+                started.countDown();
+                task.run();
+            }));
+            List<SearchResult> lines = shared.analyze(SearchLimits.nodes(50000).withThreads(3), iteration -> {
+                try {
+                    started.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(lines.get(0).nodes() > alone);
+
+            // Helpers still queued when the main thread finishes are dropped
+            CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < 2; i++) {
+                executor.execute(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            Search blocked = new Search(game);
+            blocked.setHelperExecutor(executor);
+            SearchResult result = blocked.search(SearchLimits.nodes(50000).withThreads(3));
+            release.countDown();
+            assertNotNull(result.bestMove());
+            assertEquals(alone, result.nodes());
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void multiPvFindsDistinctLinesBestFirst() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        List<List<SearchResult>> iterations = new ArrayList<>();
+        List<SearchResult> lines = new Search(game).analyze(SearchLimits.depth(4).withLines(3), iterations::add);
+
+        assertEquals(3, lines.size());
+        assertEquals(move("d2d5"), lines.get(0).bestMove());
+        Set<ChessMove> firstMoves = new HashSet<>();
+        for (int i = 0; i < lines.size(); i++) {
+            firstMoves.add(lines.get(i).bestMove());
+            assertEquals(lines.get(i).bestMove(), lines.get(i).principalVariation().get(0));
+            if (i > 0) {
+                assertTrue(lines.get(i).score() <= lines.get(i - 1).score());
+            }
+        }
+        assertEquals(3, firstMoves.size());
+        assertEquals(4, iterations.size());
+        assertEquals(lines, iterations.get(3).stream()
+                .map(line -> new SearchResult(line.bestMove(), line.score(), line.depth(), lines.get(0).nodes(),
+                        line.principalVariation()))
+                .toList());
+    }
+
+    @Test
+    public void multiPvStopsAtTheLegalMoves() {
+        // The king has only two squares, so only two lines
+        ChessGame game = ChessGame.fromFen("7k/8/8/8/3B4/8/8/K7 b - - 0 1");
+        List<SearchResult> lines = new Search(game).analyze(SearchLimits.depth(2).withLines(5), null);
+        assertEquals(2, lines.size());
+        assertNotEquals(lines.get(0).bestMove(), lines.get(1).bestMove());
+        assertThrows(IllegalArgumentException.class, () -> SearchLimits.depth(2).withLines(0));
+    }
+}
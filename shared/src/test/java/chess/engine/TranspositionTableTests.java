@@ -0,0 +1,103 @@
+package chess.engine;
+
+import chess.ChessGame;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTests {
+
+    @Test
+    public void storesAndProbes() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x123456789ABCDEFL;
+        assertEquals(0L, table.probe(key));
+
+        table.store(key, 0x1234, -Search.MATE + 5, 7, TranspositionTable.LOWER);
+        long data = table.probe(key);
+        assertEquals(0x1234, TranspositionTable.move(data));
+        assertEquals(-Search.MATE + 5, TranspositionTable.score(data));
+        assertEquals(7, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+        assertEquals(0L, table.probe(key ^ 1L << 40));
+    }
+
+    @Test
+    public void sizeIsPowerOfTwo() {
+        assertEquals(1 << 16, new TranspositionTable(1).capacity());
+        assertEquals(1 << 17, new TranspositionTable(3).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    @Test
+    public void keepsMoveWhenStoringWithoutOne() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(42L, 0x0ABC, 10, 3, TranspositionTable.EXACT);
+        table.store(42L, 0, -20, 4, TranspositionTable.UPPER);
+        long data = table.probe(42L);
+        assertEquals(0x0ABC, TranspositionTable.move(data));
+        assertEquals(-20, TranspositionTable.score(data));
+        assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(data));
+    }
+
+    @Test
+    public void replacesOldestInFullBucket() {
+        TranspositionTable table = new TranspositionTable(1);
+        long stride = table.capacity() / 4;
+        for (int i = 0; i < 4; i++) {
+            table.store(7L + i * stride, 1, 0, 10, TranspositionTable.EXACT);
+        }
+        table.newSearch();
+        table.store(7L + 4 * stride, 1, 0, 1, TranspositionTable.EXACT);
+        assertNotEquals(0L, table.probe(7L + 4 * stride));
+
+        int kept = 0;
+        for (int i = 0; i < 4; i++) {
+            if (table.probe(7L + i * stride) != 0) {
+                kept++;
+            }
+        }
+        assertEquals(3, kept);
+    }
+
+    @Test
+    public void concurrentWritersNeverMixEntries() throws InterruptedException {
+        // Every key is stored with data derived from it, so any entry read back
+        // must match its key even while other threads overwrite the same buckets
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicBoolean mixed = new AtomicBoolean();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    long key = (seed * 1_000_003L + i) * 0x9E3779B97F4A7C15L & 0xFFFFFFFFFFF0FFFFL;
+                    int check = (int) (key >>> 44) & 0xFFFFF;
+                    table.store(key, check, (short) key, 5, TranspositionTable.EXACT);
+                    long data = table.probe(key);
+                    if (data != 0 && (TranspositionTable.move(data) != check
+                            || TranspositionTable.score(data) != (short) key)) {
+                        mixed.set(true);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(mixed.get());
+    }
+
+    @Test
+    public void sharedTableGivesSameMove() {
+        ChessGame game = ChessGame.fromFen("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3");
+        TranspositionTable table = new TranspositionTable(4);
+        SearchResult first = new Search(game, table).search(SearchLimits.depth(5));
+        SearchResult second = new Search(game, table).search(SearchLimits.depth(5));
+        assertEquals(first.bestMove(), second.bestMove());
+        assertTrue(second.nodes() < first.nodes());
+    }
+}